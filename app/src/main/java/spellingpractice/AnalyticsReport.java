@@ -0,0 +1,502 @@
+package spellingpractice;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.*;
+import java.time.zone.ZoneRules;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+/**
+ * Accuracy over the full answer history, per word, per spelling pattern
+ * and per week, for one learner or many, exported as CSV or HTML.
+ *
+ * Every step runs on the common fork-join pool. Each answer is packed into
+ * one long (word, week, outcome) and the packed answers are sorted with
+ * Arrays.parallelSort, which leaves every word's answers next to each other
+ * in week order. The sorted array is then cut into chunks at word
+ * boundaries and each chunk is summed on its own, so no two threads ever
+ * write the same word. Pattern totals are merged from word totals, since
+ * every total here can simply be added up.
+ *
+ * The trend of a word, pattern or the whole history is the least-squares
+ * slope of its answers' outcomes against their week, in percentage points
+ * per week: positive means getting better. The mean response time leaves
+ * out answers recorded before latencies were.
+ */
+final class AnalyticsReport {
+    static final String WORDS_CSV = "words.csv";
+    static final String PATTERNS_CSV = "patterns.csv";
+    static final String WEEKS_CSV = "weeks.csv";
+    static final String HTML_FILE = "report.html";
+
+    // A pattern found in only one practised word says nothing beyond that word
+    private static final int MIN_PATTERN_WORDS = 2;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    // Packing limits: some 600 years of weeks, and latencies up to 655 s
+    private static final long MAX_WEEK = (1 << 15) - 1;
+    private static final int LATENCY_UNIT_MILLIS = 10;
+
+    private final List<Row> words;
+    private final List<Row> patterns;
+    private final List<Row> weeks;
+    private final Totals overall;
+
+    private AnalyticsReport(List<Row> words, List<Row> patterns, List<Row> weeks, Totals overall) {
+        this.words = words;
+        this.patterns = patterns;
+        this.weeks = weeks;
+        this.overall = overall;
+    }
+
+    /**
+     * Additive totals for a group of answers: they can be summed in any
+     * order, which is what lets the report merge partial results.
+     */
+    static final class Totals {
+        static final Totals NONE = new Totals(0, 0, 0, 0, 0, 0, 0, 0);
+
+        final long words;
+        final long attempts;
+        final long correct;
+        // Sums over answers of week, week squared, and week where correct
+        final double sumWeeks;
+        final double sumSquaredWeeks;
+        final double sumCorrectWeeks;
+        // Answers with a known latency, and their latencies added up
+        final long timed;
+        final long sumLatencyMillis;
+
+        Totals(long words, long attempts, long correct, double sumWeeks, double sumSquaredWeeks,
+                double sumCorrectWeeks, long timed, long sumLatencyMillis) {
+            this.words = words;
+            this.attempts = attempts;
+            this.correct = correct;
+            this.sumWeeks = sumWeeks;
+            this.sumSquaredWeeks = sumSquaredWeeks;
+            this.sumCorrectWeeks = sumCorrectWeeks;
+            this.timed = timed;
+            this.sumLatencyMillis = sumLatencyMillis;
+        }
+
+        Totals plus(Totals other) {
+            return new Totals(words + other.words, attempts + other.attempts, correct + other.correct,
+                sumWeeks + other.sumWeeks, sumSquaredWeeks + other.sumSquaredWeeks,
+                sumCorrectWeeks + other.sumCorrectWeeks, timed + other.timed,
+                sumLatencyMillis + other.sumLatencyMillis);
+        }
+
+        /**
+         * Mean seconds from seeing the word to answering, or NaN if unknown.
+         */
+        double meanSeconds() {
+            return timed == 0 ? Double.NaN : sumLatencyMillis / 1000.0 / timed;
+        }
+
+        double accuracy() {
+            return attempts == 0 ? Double.NaN : 100.0 * correct / attempts;
+        }
+
+        /**
+         * Percentage points per week, or NaN if all answers fall in one week.
+         */
+        double trend() {
+            double spread = attempts * sumSquaredWeeks - sumWeeks * sumWeeks;
+            if (attempts < 2 || spread <= 1e-9) {
+                return Double.NaN;
+            }
+            return 100 * (attempts * sumCorrectWeeks - sumWeeks * correct) / spread;
+        }
+    }
+
+    /**
+     * One line of a table: a word, pattern or week with its totals and the
+     * last week it was practised in.
+     */
+    static final class Row {
+        final String label;
+        final Totals totals;
+        final LocalDate lastWeek;
+
+        Row(String label, Totals totals, LocalDate lastWeek) {
+            this.label = label;
+            this.totals = totals;
+            this.lastWeek = lastWeek;
+        }
+    }
+
+    /**
+     * Reads the answer logs in the given data directories and reports on
+     * all of them together. A log that cannot be read is left out with a
+     * message.
+     */
+    static AnalyticsReport forDirectories(List<Path> directories, ZoneId zone) {
+        WordDictionary.Builder words = new WordDictionary.Builder();
+        List<AnswerHistory> histories = new ArrayList<>();
+        for (Path directory : directories) {
+            try {
+                histories.add(AnswerLog.read(directory, words));
+            } catch (IOException e) {
+                System.err.println("Skipping answers in " + directory + ": " + e.getMessage());
+            }
+        }
+        return build(words.build(), histories, zone);
+    }
+
+    static AnalyticsReport build(WordDictionary dictionary, List<AnswerHistory> histories, ZoneId zone) {
+        ZoneRules rules = zone.getRules();
+        long firstWeek = histories.parallelStream()
+            .mapToLong(history -> firstWeek(history, rules))
+            .min().orElse(Long.MAX_VALUE);
+        if (firstWeek == Long.MAX_VALUE) {
+            return new AnalyticsReport(List.of(), List.of(), List.of(), Totals.NONE);
+        }
+        long[] answers = packAnswers(histories, firstWeek, rules);
+        int weekCount = (int) (IntStream.range(0, answers.length).parallel()
+            .mapToLong(i -> week(answers[i]))
+            .max().getAsLong() + 1);
+
+        Arrays.parallelSort(answers);
+
+        // Chunks start where a new word starts, so each word is summed by one thread
+        int chunks = Math.max(1, Math.min(answers.length / 4096, ForkJoinPool.getCommonPoolParallelism() * 4));
+        int[] starts = new int[chunks + 1];
+        for (int c = 1; c < chunks; c++) {
+            int start = Math.max(starts[c - 1], (int) ((long) answers.length * c / chunks));
+            while (start > 0 && start < answers.length && word(answers[start]) == word(answers[start - 1])) {
+                start++;
+            }
+            starts[c] = start;
+        }
+        starts[chunks] = answers.length;
+
+        Totals[] byWord = new Totals[dictionary.size()];
+        int[] lastWeekByWord = new int[dictionary.size()];
+        WeekTotals byWeek = IntStream.range(0, chunks).parallel()
+            .mapToObj(c -> sumChunk(answers, starts[c], starts[c + 1], weekCount, byWord, lastWeekByWord))
+            .reduce(WeekTotals::plus)
+            .get();
+
+        List<Row> wordRows = IntStream.range(0, byWord.length).parallel()
+            .filter(id -> byWord[id] != null)
+            .mapToObj(id -> new Row(dictionary.word(id), byWord[id], weekStart(firstWeek + lastWeekByWord[id])))
+            .sorted(WEAKEST_FIRST)
+            .collect(Collectors.toList());
+
+        ConcurrentMap<String, Row> patternTotals = IntStream.range(0, byWord.length).parallel()
+            .filter(id -> byWord[id] != null)
+            .boxed()
+            .flatMap(id -> {
+                // A pattern can occur twice in one word, but the word counts once
+                Set<String> wordPatterns = new HashSet<>();
+                PatternIndex.forEachPattern(dictionary.word(id), wordPatterns::add);
+                LocalDate last = weekStart(firstWeek + lastWeekByWord[id]);
+                return wordPatterns.stream().map(pattern -> new Row(pattern, byWord[id], last));
+            })
+            .collect(Collectors.toConcurrentMap(row -> row.label, row -> row, AnalyticsReport::merge));
+        List<Row> patternRows = patternTotals.values().parallelStream()
+            .filter(row -> row.totals.words >= MIN_PATTERN_WORDS)
+            .map(row -> new Row(displayPattern(row.label), row.totals, row.lastWeek))
+            .sorted(WEAKEST_FIRST)
+            .collect(Collectors.toList());
+
+        List<Row> weekRows = new ArrayList<>();
+        Totals overall = Totals.NONE;
+        for (int week = 0; week < weekCount; week++) {
+            if (byWeek.attempts[week] == 0) {
+                continue;
+            }
+            // The week's answers all share one week, so its trend is undefined
+            Totals totals = new Totals(byWeek.words[week], byWeek.attempts[week], byWeek.correct[week],
+                (double) week * byWeek.attempts[week], (double) week * week * byWeek.attempts[week],
+                (double) week * byWeek.correct[week], byWeek.timed[week], byWeek.sumLatencyMillis[week]);
+            overall = overall.plus(totals);
+            LocalDate start = weekStart(firstWeek + week);
+            weekRows.add(new Row(start.toString(), totals, start));
+        }
+        // Distinct words over the whole history, not summed per week
+        overall = new Totals(wordRows.size(), overall.attempts, overall.correct, overall.sumWeeks,
+            overall.sumSquaredWeeks, overall.sumCorrectWeeks, overall.timed, overall.sumLatencyMillis);
+        return new AnalyticsReport(wordRows, patternRows, weekRows, overall);
+    }
+
+    private static final Comparator<Row> WEAKEST_FIRST = Comparator
+        .comparingDouble((Row row) -> row.totals.accuracy())
+        .thenComparing(Comparator.comparingLong((Row row) -> row.totals.attempts).reversed())
+        .thenComparing(row -> row.label);
+
+    private static Row merge(Row first, Row second) {
+        LocalDate last = first.lastWeek.isAfter(second.lastWeek) ? first.lastWeek : second.lastWeek;
+        return new Row(first.label, first.totals.plus(second.totals), last);
+    }
+
+    // Answers as word << 32 | week << 17 | latency << 1 | correct, with
+    // weeks counted from the first week of any history and latency in units
+    // of LATENCY_UNIT_MILLIS. A latency of 0 is unknown, so known ones are
+    // rounded to the nearest unit but never below one.
+    private static long[] packAnswers(List<AnswerHistory> histories, long firstWeek, ZoneRules rules) {
+        int total = 0;
+        for (AnswerHistory history : histories) {
+            total = Math.addExact(total, history.size());
+        }
+        long[] answers = new long[total];
+        int offset = 0;
+        for (AnswerHistory history : histories) {
+            int base = offset;
+            IntStream.range(0, history.size()).parallel().forEach(i -> {
+                long week = Math.min(weekOf(history.time(i), rules) - firstWeek, MAX_WEEK);
+                long latency = latencyUnits(history.latency(i));
+                answers[base + i] = (long) history.word(i) << 32 | week << 17 | latency << 1
+                    | (history.correct(i) ? 1 : 0);
+            });
+            offset += history.size();
+        }
+        return answers;
+    }
+
+    private static long latencyUnits(int latencyMillis) {
+        if (latencyMillis == 0) {
+            return 0;
+        }
+        return Math.max(1, (latencyMillis + LATENCY_UNIT_MILLIS / 2) / LATENCY_UNIT_MILLIS);
+    }
+
+    private static long firstWeek(AnswerHistory history, ZoneRules rules) {
+        return IntStream.range(0, history.size()).parallel()
+            .mapToLong(i -> weekOf(history.time(i), rules))
+            .min().orElse(Long.MAX_VALUE);
+    }
+
+    // Weeks start on Monday; day 0 of the epoch was a Thursday
+    private static long weekOf(long millis, ZoneRules rules) {
+        long local = millis + rules.getOffset(Instant.ofEpochMilli(millis)).getTotalSeconds() * 1000L;
+        return Math.floorDiv(Math.floorDiv(local, DAY_MILLIS) + 3, 7);
+    }
+
+    private static LocalDate weekStart(long week) {
+        return LocalDate.ofEpochDay(week * 7 - 3);
+    }
+
+    private static int word(long answer) {
+        return (int) (answer >>> 32);
+    }
+
+    private static int week(long answer) {
+        return ((int) answer) >>> 17;
+    }
+
+    private static int latencyMillis(long answer) {
+        return ((int) answer >>> 1 & 0xFFFF) * LATENCY_UNIT_MILLIS;
+    }
+
+    /**
+     * Per-week sums from one chunk of the sorted answers.
+     */
+    private static final class WeekTotals {
+        final long[] words;
+        final long[] attempts;
+        final long[] correct;
+        final long[] timed;
+        final long[] sumLatencyMillis;
+
+        WeekTotals(int weeks) {
+            words = new long[weeks];
+            attempts = new long[weeks];
+            correct = new long[weeks];
+            timed = new long[weeks];
+            sumLatencyMillis = new long[weeks];
+        }
+
+        WeekTotals plus(WeekTotals other) {
+            for (int week = 0; week < words.length; week++) {
+                words[week] += other.words[week];
+                attempts[week] += other.attempts[week];
+                correct[week] += other.correct[week];
+                timed[week] += other.timed[week];
+                sumLatencyMillis[week] += other.sumLatencyMillis[week];
+            }
+            return this;
+        }
+    }
+
+    // Sums each word's run of answers; within a run they are in week order
+    private static WeekTotals sumChunk(long[] answers, int from, int to, int weekCount, Totals[] byWord,
+            int[] lastWeekByWord) {
+        WeekTotals weeks = new WeekTotals(weekCount);
+        int i = from;
+        while (i < to) {
+            int word = word(answers[i]);
+            long attempts = 0;
+            long correct = 0;
+            double sumWeeks = 0;
+            double sumSquaredWeeks = 0;
+            double sumCorrectWeeks = 0;
+            long timed = 0;
+            long sumLatencyMillis = 0;
+            int previousWeek = -1;
+            for (; i < to && word(answers[i]) == word; i++) {
+                int week = week(answers[i]);
+                int outcome = (int) (answers[i] & 1);
+                int latency = latencyMillis(answers[i]);
+                int known = latency > 0 ? 1 : 0;
+                attempts++;
+                correct += outcome;
+                sumWeeks += week;
+                sumSquaredWeeks += (double) week * week;
+                sumCorrectWeeks += (double) week * outcome;
+                timed += known;
+                sumLatencyMillis += latency;
+                if (week != previousWeek) {
+                    weeks.words[week]++;
+                    previousWeek = week;
+                }
+                weeks.attempts[week]++;
+                weeks.correct[week] += outcome;
+                weeks.timed[week] += known;
+                weeks.sumLatencyMillis[week] += latency;
+            }
+            byWord[word] = new Totals(1, attempts, correct, sumWeeks, sumSquaredWeeks, sumCorrectWeeks,
+                timed, sumLatencyMillis);
+            lastWeekByWord[word] = previousWeek;
+        }
+        return weeks;
+    }
+
+    // "aw$" reads as "-aw" (an ending), "^kn" as "kn-" (a beginning)
+    private static String displayPattern(String pattern) {
+        if (pattern.startsWith("^")) {
+            return pattern.substring(1) + "-";
+        }
+        if (pattern.endsWith("$")) {
+            return "-" + pattern.substring(0, pattern.length() - 1);
+        }
+        return pattern;
+    }
+
+    List<Row> words() {
+        return words;
+    }
+
+    List<Row> patterns() {
+        return patterns;
+    }
+
+    List<Row> weeks() {
+        return weeks;
+    }
+
+    Totals overall() {
+        return overall;
+    }
+
+    /**
+     * Writes words.csv, patterns.csv and weeks.csv into the directory.
+     */
+    void writeCsv(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        writeCsv(directory.resolve(WORDS_CSV), "word", words, true);
+        writeCsv(directory.resolve(PATTERNS_CSV), "pattern", patterns, true);
+        writeCsv(directory.resolve(WEEKS_CSV), "week", weeks, false);
+    }
+
+    private static void writeCsv(Path file, String labelColumn, List<Row> rows, boolean withLastWeek)
+            throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(labelColumn + ",words,attempts,correct,accuracy_percent,trend_points_per_week,mean_seconds"
+                + (withLastWeek ? ",last_week" : "") + "\n");
+            for (Row row : rows) {
+                out.write(csvField(row.label) + "," + row.totals.words + "," + row.totals.attempts + ","
+                    + row.totals.correct + "," + format(row.totals.accuracy()) + ","
+                    + format(row.totals.trend()) + "," + format(row.totals.meanSeconds())
+                    + (withLastWeek ? "," + row.lastWeek : "") + "\n");
+            }
+        }
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "";
+        }
+        String text = String.format(Locale.ROOT, "%.1f", value);
+        return text.equals("-0.0") ? "0.0" : text;
+    }
+
+    /**
+     * Writes the whole report as one self-contained HTML page.
+     */
+    void writeHtml(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>Spelling Report</title>\n"
+                + "<style>body{font-family:sans-serif}table{border-collapse:collapse;margin-bottom:2em}"
+                + "th,td{border:1px solid #ccc;padding:2px 8px;text-align:right}"
+                + "td:first-child,th:first-child{text-align:left}</style></head><body>\n");
+            out.write("<h1>Spelling Report</h1>\n<p>" + overall.attempts + " answers to " + overall.words
+                + " words, " + format(overall.accuracy()) + "% correct, trend "
+                + format(overall.trend()) + " points per week, " + format(overall.meanSeconds())
+                + " seconds per answer.</p>\n");
+            writeHtmlTable(out, "Weeks", "Week starting", weeks, false);
+            writeHtmlTable(out, "Words", "Word", words, true);
+            writeHtmlTable(out, "Patterns", "Pattern", patterns, true);
+            out.write("</body></html>\n");
+        }
+    }
+
+    private static void writeHtmlTable(Writer out, String title, String labelColumn, List<Row> rows,
+            boolean withLastWeek) throws IOException {
+        out.write("<h2>" + title + "</h2>\n<table><tr><th>" + labelColumn
+            + "</th><th>Words</th><th>Attempts</th><th>Correct</th><th>Accuracy %</th>"
+            + "<th>Trend (points/week)</th><th>Mean seconds</th>" + (withLastWeek ? "<th>Last week</th>" : "") + "</tr>\n");
+        for (Row row : rows) {
+            out.write("<tr><td>" + escapeHtml(row.label) + "</td><td>" + row.totals.words + "</td><td>"
+                + row.totals.attempts + "</td><td>" + row.totals.correct + "</td><td>"
+                + format(row.totals.accuracy()) + "</td><td>" + format(row.totals.trend()) + "</td><td>"
+                + format(row.totals.meanSeconds()) + "</td>"
+                + (withLastWeek ? "<td>" + row.lastWeek + "</td>" : "") + "</tr>\n");
+        }
+        out.write("</table>\n");
+    }
+
+    private static String escapeHtml(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    /**
+     * Usage: AnalyticsReport OUTPUT_DIRECTORY [DATA_DIRECTORY...]
+     * Without data directories, reports on every profile under the working
+     * directory together. Writes the CSV files and report.html.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: AnalyticsReport OUTPUT_DIRECTORY [DATA_DIRECTORY...]");
+            System.exit(2);
+        }
+        Path output = Paths.get(args[0]);
+        List<Path> directories = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            directories.add(Paths.get(args[i]));
+        }
+        if (directories.isEmpty()) {
+            directories = ProfileManager.dataDirectories(Paths.get(""));
+        }
+
+        long start = System.nanoTime();
+        AnalyticsReport report = forDirectories(directories, ZoneId.systemDefault());
+        report.writeCsv(output);
+        report.writeHtml(output.resolve(HTML_FILE));
+        System.out.printf(Locale.ROOT, "%d answers, %d words, %d patterns, %d weeks in %.0f ms -> %s%n",
+            report.overall.attempts, report.words.size(), report.patterns.size(), report.weeks.size(),
+            (System.nanoTime() - start) / 1e6, output.toAbsolutePath());
+    }
+}
@@ -0,0 +1,66 @@
+package spellingpractice;
+
+import java.util.*;
+
+/**
+ * Answers held column by column: word IDs, times, response latencies and
+ * outcomes in separate primitive arrays, so a scan over one column touches
+ * nothing else and a few million answers cost a few tens of MB rather than
+ * an object each.
+ */
+final class AnswerHistory {
+    private int[] words;
+    private long[] times;
+    private int[] latencies;
+    private final BitSet correct = new BitSet();
+    private int size;
+
+    AnswerHistory() {
+        this(16);
+    }
+
+    AnswerHistory(int capacity) {
+        words = new int[Math.max(1, capacity)];
+        times = new long[words.length];
+        latencies = new int[words.length];
+    }
+
+    void add(int word, long time, int latencyMillis, boolean wasCorrect) {
+        if (size == words.length) {
+            words = Arrays.copyOf(words, size * 2);
+            times = Arrays.copyOf(times, size * 2);
+            latencies = Arrays.copyOf(latencies, size * 2);
+        }
+        words[size] = word;
+        times[size] = time;
+        latencies[size] = latencyMillis;
+        correct.set(size, wasCorrect);
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int word(int index) {
+        return words[index];
+    }
+
+    /**
+     * When the answer was given, in epoch milliseconds.
+     */
+    long time(int index) {
+        return times[index];
+    }
+
+    /**
+     * Milliseconds from showing the word to the answer, or 0 if unknown.
+     */
+    int latency(int index) {
+        return latencies[index];
+    }
+
+    boolean correct(int index) {
+        return correct.get(index);
+    }
+}
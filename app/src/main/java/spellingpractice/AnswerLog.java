@@ -0,0 +1,395 @@
+package spellingpractice;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * Every answer ever given: word, time, response latency and outcome.
+ *
+ * New answers are appended to a small tail file, one checksummed record
+ * each, with batched fsync like the progress journal. Once the tail holds
+ * SEGMENT_ANSWERS answers it is sealed into a columnar segment file under
+ * answers/ and a fresh tail is started, so appending and opening never
+ * look at the rest of the history.
+ *
+ * Tail: a checksummed header (magic, version, number of the segment it
+ * will become), then per answer the word, the time in epoch milliseconds
+ * and the latency in milliseconds (0 if unknown) as varints, 1 for correct
+ * or 0 for wrong, and a CRC32 of the record. A torn record left by a crash ends the
+ * readable part and is cut off before the next append.
+ *
+ * Segment payload, one column after another:
+ * <pre>
+ *   count | word table (count, words) | word indices, bit-packed at the
+ *   table's width | times as zigzag varint deltas | latencies as varints |
+ *   outcomes, one bit each
+ * </pre>
+ * Answers in a session are seconds apart, so a time mostly costs two
+ * bytes, a latency two, a word a few bits and an outcome one bit: around
+ * 5 bytes an answer, a few MB for years of daily practice. Words are
+ * stored as text once per segment, so segments stay valid when the word
+ * list changes.
+ *
+ * Sealing writes segment N before starting the tail of segment N + 1. A
+ * crash in between leaves a tail whose segment already exists, which is
+ * then ignored.
+ */
+final class AnswerLog implements Closeable {
+    static final String LOG_FILE = "spelling_answers.bin";
+    static final String SEGMENT_DIRECTORY = "answers";
+    static final int SEGMENT_ANSWERS = 4096;
+    // Longer than this is someone who walked away, not a slow answer
+    static final int MAX_LATENCY_MILLIS = 10 * 60 * 1000;
+
+    private static final String MAGIC = "SPAL";
+    private static final String SEGMENT_MAGIC = "SPAS";
+    private static final int VERSION = 1;
+    private static final int SEGMENT_VERSION = 1;
+    private static final int SYNC_EVERY = 16;
+
+    private final Path logFile;
+    private final Path segmentDirectory;
+    private final WordDictionary dictionary;
+    private FileChannel channel;
+    // The segment the tail becomes when sealed, and its answers so far
+    private long segment;
+    private int tailAnswers;
+    private int unsynced;
+
+    AnswerLog(Path directory, WordDictionary dictionary) {
+        this.logFile = directory.resolve(LOG_FILE);
+        this.segmentDirectory = directory.resolve(SEGMENT_DIRECTORY);
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * What is known about a tail file after reading it.
+     */
+    private static final class Tail {
+        long segment;
+        int validLength;
+        int answers;
+    }
+
+    /**
+     * Reads every sealed segment and the complete records of the tail,
+     * oldest first. Words get their IDs from the given builder, so the
+     * histories of several learners can share one dictionary, words no
+     * longer in any list included. Safe to call while another thread
+     * appends.
+     */
+    static AnswerHistory read(Path directory, WordDictionary.Builder words) throws IOException {
+        Path logFile = directory.resolve(LOG_FILE);
+        Path segmentDirectory = directory.resolve(SEGMENT_DIRECTORY);
+        AnswerHistory history = new AnswerHistory();
+        long segments = 0;
+        while (true) {
+            for (Path file = segmentDirectory.resolve(segmentName(segments));
+                    Files.exists(file);
+                    file = segmentDirectory.resolve(segmentName(++segments))) {
+                try {
+                    readSegment(file, words, history);
+                } catch (BinaryFormat.CorruptFileException e) {
+                    System.err.println("Skipping corrupt answer segment: " + e.getMessage());
+                }
+            }
+            if (!Files.exists(logFile)) {
+                return history;
+            }
+
+            AnswerHistory tailHistory = new AnswerHistory();
+            Tail tail = scanTail(logFile, Files.readAllBytes(logFile), words, tailHistory);
+            if (tail.segment > segments && Files.exists(segmentDirectory.resolve(segmentName(segments)))) {
+                // Sealed while we were reading; its answers are in the new segment
+                continue;
+            }
+            if (tail.segment >= segments) {
+                for (int i = 0; i < tailHistory.size(); i++) {
+                    history.add(tailHistory.word(i), tailHistory.time(i), tailHistory.latency(i),
+                        tailHistory.correct(i));
+                }
+            }
+            return history;
+        }
+    }
+
+    // Reads the complete records of a tail into the history, if one is given
+    private static Tail scanTail(Path logFile, byte[] data, WordDictionary.Builder words, AnswerHistory into)
+            throws BinaryFormat.CorruptFileException {
+        BinaryFormat.Reader reader = new BinaryFormat.Reader(logFile, data, 0, data.length);
+        byte[] magic = new byte[MAGIC.length()];
+        for (int i = 0; i < magic.length; i++) {
+            magic[i] = (byte) reader.getByte();
+        }
+        Tail tail = new Tail();
+        if (!MAGIC.equals(new String(magic, StandardCharsets.US_ASCII)) || reader.getByte() != VERSION) {
+            throw new BinaryFormat.CorruptFileException(logFile, "not an answer log");
+        }
+        tail.segment = reader.getVarint();
+        if (!reader.checkCrc(0)) {
+            throw new BinaryFormat.CorruptFileException(logFile, "header checksum mismatch");
+        }
+        tail.validLength = reader.position();
+
+        try {
+            while (reader.hasRemaining()) {
+                int recordStart = reader.position();
+                String word = reader.getString();
+                long time = reader.getVarint();
+                long latency = reader.getVarint();
+                boolean correct = reader.getByte() != 0;
+                if (!reader.checkCrc(recordStart)) {
+                    break;
+                }
+                if (into != null) {
+                    into.add(words.add(word), time, (int) Math.min(latency, MAX_LATENCY_MILLIS), correct);
+                }
+                tail.answers++;
+                tail.validLength = reader.position();
+            }
+        } catch (BinaryFormat.CorruptFileException e) {
+            // Torn final record, or one still being written
+        }
+        return tail;
+    }
+
+    private static void readSegment(Path file, WordDictionary.Builder words, AnswerHistory into)
+            throws IOException {
+        BinaryFormat.Reader reader = BinaryFormat.readFile(file, SEGMENT_MAGIC, SEGMENT_VERSION);
+        int count = reader.getCount();
+        int tableSize = reader.getCount();
+        int[] ids = new int[tableSize];
+        for (int i = 0; i < tableSize; i++) {
+            ids[i] = words.add(reader.getString());
+        }
+
+        int bits = reader.getByte();
+        if (bits > Integer.SIZE) {
+            throw new BinaryFormat.CorruptFileException(file, "word width out of range");
+        }
+        long[] packedWords = new long[packedLength(count, bits)];
+        for (int i = 0; i < packedWords.length; i++) {
+            packedWords[i] = reader.getLong();
+        }
+        long[] times = new long[count];
+        long time = 0;
+        for (int i = 0; i < count; i++) {
+            long zigzag = reader.getVarint();
+            time += (zigzag >>> 1) ^ -(zigzag & 1);
+            times[i] = time;
+        }
+        int[] latencies = new int[count];
+        for (int i = 0; i < count; i++) {
+            latencies[i] = (int) Math.min(reader.getVarint(), MAX_LATENCY_MILLIS);
+        }
+        long[] outcomes = new long[packedLength(count, 1)];
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = reader.getLong();
+        }
+
+        for (int i = 0; i < count; i++) {
+            int index = unpack(packedWords, i, bits);
+            if (index >= tableSize) {
+                throw new BinaryFormat.CorruptFileException(file, "word index out of range");
+            }
+            into.add(ids[index], times[i], latencies[i], (outcomes[i >>> 6] & (1L << i)) != 0);
+        }
+    }
+
+    // Answers in the history refer to the table by index
+    private static BinaryFormat.Writer encodeSegment(WordDictionary table, AnswerHistory answers) {
+        int count = answers.size();
+        BinaryFormat.Writer writer = new BinaryFormat.Writer(SEGMENT_MAGIC, SEGMENT_VERSION);
+        writer.putVarint(count);
+        writer.putVarint(table.size());
+        for (int id = 0; id < table.size(); id++) {
+            writer.putString(table.word(id));
+        }
+
+        int bits = Integer.SIZE - Integer.numberOfLeadingZeros(Math.max(0, table.size() - 1));
+        writer.putByte(bits);
+        long[] packedWords = new long[packedLength(count, bits)];
+        for (int i = 0; i < count; i++) {
+            pack(packedWords, i, bits, answers.word(i));
+        }
+        for (long packed : packedWords) {
+            writer.putLong(packed);
+        }
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            long delta = answers.time(i) - previous;
+            writer.putVarint((delta << 1) ^ (delta >> 63));
+            previous = answers.time(i);
+        }
+        for (int i = 0; i < count; i++) {
+            writer.putVarint(answers.latency(i));
+        }
+        long[] outcomes = new long[packedLength(count, 1)];
+        for (int i = 0; i < count; i++) {
+            if (answers.correct(i)) {
+                outcomes[i >>> 6] |= 1L << i;
+            }
+        }
+        for (long packed : outcomes) {
+            writer.putLong(packed);
+        }
+        return writer;
+    }
+
+    private static int packedLength(int count, int bits) {
+        return (int) (((long) count * bits + 63) >>> 6);
+    }
+
+    private static void pack(long[] packed, int index, int bits, int value) {
+        if (bits == 0) {
+            return;
+        }
+        long bit = (long) index * bits;
+        int word = (int) (bit >>> 6);
+        int shift = (int) bit & 63;
+        packed[word] |= (value & 0xFFFFFFFFL) << shift;
+        if (shift + bits > 64) {
+            packed[word + 1] |= (value & 0xFFFFFFFFL) >>> (64 - shift);
+        }
+    }
+
+    private static int unpack(long[] packed, int index, int bits) {
+        if (bits == 0) {
+            return 0;
+        }
+        long bit = (long) index * bits;
+        int word = (int) (bit >>> 6);
+        int shift = (int) bit & 63;
+        long value = packed[word] >>> shift;
+        if (shift + bits > 64) {
+            value |= packed[word + 1] << (64 - shift);
+        }
+        return (int) (value & ((1L << bits) - 1));
+    }
+
+    private static String segmentName(long number) {
+        return "segment-" + number + ".bin";
+    }
+
+    /**
+     * Appends the answers, opening the log on first use, and seals the
+     * tail once it is full.
+     */
+    void append(AnswerHistory answers) throws IOException {
+        if (answers.size() == 0) {
+            return;
+        }
+        if (channel == null) {
+            open();
+        }
+
+        BinaryFormat.Writer records = new BinaryFormat.Writer();
+        for (int i = 0; i < answers.size(); i++) {
+            int recordStart = records.size();
+            records.putString(dictionary.word(answers.word(i)));
+            records.putVarint(answers.time(i));
+            records.putVarint(answers.latency(i));
+            records.putByte(answers.correct(i) ? 1 : 0);
+            records.putCrc(recordStart);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(records.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        tailAnswers += answers.size();
+        unsynced += answers.size();
+
+        if (tailAnswers >= SEGMENT_ANSWERS) {
+            seal();
+        } else if (unsynced >= SYNC_EVERY) {
+            sync();
+        }
+    }
+
+    // Picks up the tail where the last run left it, cutting off whatever a
+    // crash left half-written
+    private void open() throws IOException {
+        long segments = 0;
+        while (Files.exists(segmentDirectory.resolve(segmentName(segments)))) {
+            segments++;
+        }
+
+        Tail tail = null;
+        if (Files.exists(logFile)) {
+            byte[] data = Files.readAllBytes(logFile);
+            try {
+                tail = scanTail(logFile, data, null, null);
+            } catch (BinaryFormat.CorruptFileException e) {
+                Path kept = BinaryFormat.quarantine(logFile);
+                System.err.println("Answer log is corrupt, moved to " + kept + ": " + e.getMessage());
+            }
+            if (tail != null && tail.segment >= segments && tail.validLength < data.length) {
+                System.err.println("Dropped " + (data.length - tail.validLength)
+                    + " unreadable bytes at the end of " + logFile);
+            }
+        }
+
+        if (tail == null || tail.segment < segments) {
+            // New, or already sealed before a crash
+            startTail(segments);
+            return;
+        }
+        segment = tail.segment;
+        tailAnswers = tail.answers;
+        channel = FileChannel.open(logFile, StandardOpenOption.WRITE);
+        channel.truncate(tail.validLength);
+        channel.position(tail.validLength);
+    }
+
+    private void startTail(long number) throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        BinaryFormat.Writer header = new BinaryFormat.Writer(MAGIC, VERSION);
+        header.putVarint(number);
+        header.putCrc(0);
+        BinaryFormat.writeAtomically(logFile, header.toByteArray());
+        channel = FileChannel.open(logFile, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        segment = number;
+        tailAnswers = 0;
+        unsynced = 0;
+    }
+
+    // Rewrites the tail as a columnar segment and starts the next tail
+    private void seal() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+        WordDictionary.Builder table = new WordDictionary.Builder();
+        AnswerHistory answers = new AnswerHistory(tailAnswers);
+        scanTail(logFile, Files.readAllBytes(logFile), table, answers);
+        if (answers.size() > 0) {
+            Files.createDirectories(segmentDirectory);
+            BinaryFormat.writeFile(segmentDirectory.resolve(segmentName(segment)),
+                encodeSegment(table.build(), answers));
+            startTail(segment + 1);
+        } else {
+            startTail(segment);
+        }
+    }
+
+    void sync() throws IOException {
+        if (channel != null && unsynced > 0) {
+            channel.force(false);
+            unsynced = 0;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            sync();
+            channel.close();
+            channel = null;
+        }
+    }
+}
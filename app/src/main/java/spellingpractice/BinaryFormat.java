@@ -0,0 +1,258 @@
+package spellingpractice;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Shared pieces of the binary data files: varint encoding, length-prefixed
+ * UTF-8 strings and a CRC32 trailer.
+ *
+ * Every file is laid out as
+ * <pre>
+ *   magic (4 bytes) | version (1 byte) | payload | CRC32 of everything before it (4 bytes)
+ * </pre>
+ * and is read with one sequential read, then checked before any of it is used.
+ */
+final class BinaryFormat {
+    private BinaryFormat() {
+    }
+
+    /**
+     * A data file that failed its magic, version or checksum check.
+     */
+    static final class CorruptFileException extends IOException {
+        CorruptFileException(Path file, String reason) {
+            super(file + ": " + reason);
+        }
+    }
+
+    /**
+     * Growable output buffer.
+     */
+    static final class Writer {
+        private byte[] buffer = new byte[256];
+        private int size;
+
+        Writer() {
+        }
+
+        Writer(String magic, int version) {
+            putBytes(magic.getBytes(StandardCharsets.US_ASCII));
+            putByte(version);
+        }
+
+        void putByte(int value) {
+            ensure(1);
+            buffer[size++] = (byte) value;
+        }
+
+        void putBytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        void putInt(int value) {
+            putByte(value >>> 24);
+            putByte(value >>> 16);
+            putByte(value >>> 8);
+            putByte(value);
+        }
+
+        void putLong(long value) {
+            putInt((int) (value >>> 32));
+            putInt((int) value);
+        }
+
+        void putVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                putByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            putByte((int) value);
+        }
+
+        void putString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putVarint(bytes.length);
+            putBytes(bytes);
+        }
+
+        /**
+         * Appends a CRC32 of everything written since the given offset.
+         */
+        void putCrc(int from) {
+            CRC32 crc = new CRC32();
+            crc.update(buffer, from, size - from);
+            putInt((int) crc.getValue());
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+    }
+
+    /**
+     * Cursor over a byte array. Running off the end throws
+     * CorruptFileException.
+     */
+    static final class Reader {
+        private final Path file;
+        private final byte[] data;
+        private final int limit;
+        private int position;
+
+        Reader(Path file, byte[] data, int position, int limit) {
+            this.file = file;
+            this.data = data;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        int position() {
+            return position;
+        }
+
+        boolean hasRemaining() {
+            return position < limit;
+        }
+
+        int getByte() throws CorruptFileException {
+            if (position >= limit) {
+                throw new CorruptFileException(file, "unexpected end of data");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        int getInt() throws CorruptFileException {
+            return (getByte() << 24) | (getByte() << 16) | (getByte() << 8) | getByte();
+        }
+
+        long getLong() throws CorruptFileException {
+            return ((long) getInt() << 32) | (getInt() & 0xFFFFFFFFL);
+        }
+
+        long getVarint() throws CorruptFileException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = getByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new CorruptFileException(file, "malformed varint");
+        }
+
+        /**
+         * Reads the number of elements that follow.
+         */
+        int getCount() throws CorruptFileException {
+            long value = getVarint();
+            // Every counted element takes at least one byte
+            if (value < 0 || value > limit - position) {
+                throw new CorruptFileException(file, "count out of range");
+            }
+            return (int) value;
+        }
+
+        String getString() throws CorruptFileException {
+            long length = getVarint();
+            if (length < 0 || length > limit - position) {
+                throw new CorruptFileException(file, "string runs past end of data");
+            }
+            String value = new String(data, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return value;
+        }
+
+        /**
+         * Reads a CRC32 and checks it against the bytes from the given offset
+         * up to the checksum itself.
+         */
+        boolean checkCrc(int from) throws CorruptFileException {
+            int end = position;
+            int expected = getInt();
+            CRC32 crc = new CRC32();
+            crc.update(data, from, end - from);
+            return (int) crc.getValue() == expected;
+        }
+    }
+
+    /**
+     * Reads a whole file and verifies its magic, version and trailing CRC.
+     * Returns a reader positioned at the start of the payload, limited to
+     * the payload.
+     */
+    static Reader readFile(Path file, String magic, int version) throws IOException {
+        byte[] data = Files.readAllBytes(file);
+        byte[] expectedMagic = magic.getBytes(StandardCharsets.US_ASCII);
+        int header = expectedMagic.length + 1;
+
+        if (data.length < header + 4
+                || !Arrays.equals(data, 0, expectedMagic.length, expectedMagic, 0, expectedMagic.length)) {
+            throw new CorruptFileException(file, "not a " + magic + " file");
+        }
+        if (data[expectedMagic.length] != version) {
+            throw new CorruptFileException(file, "unsupported version " + data[expectedMagic.length]);
+        }
+
+        Reader trailer = new Reader(file, data, data.length - 4, data.length);
+        int expected = trailer.getInt();
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 4);
+        if ((int) crc.getValue() != expected) {
+            throw new CorruptFileException(file, "checksum mismatch");
+        }
+
+        return new Reader(file, data, header, data.length - 4);
+    }
+
+    /**
+     * Finishes the writer with its CRC and replaces the file atomically.
+     */
+    static void writeFile(Path file, Writer writer) throws IOException {
+        writer.putCrc(0);
+        writeAtomically(file, writer.toByteArray());
+    }
+
+    static void writeAtomically(Path target, byte[] content) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Moves a file that failed to load out of the way, so it is kept for
+     * inspection but not overwritten by the next save.
+     */
+    static Path quarantine(Path file) throws IOException {
+        Path target = file.resolveSibling(file.getFileName() + ".corrupt-" + System.currentTimeMillis());
+        Files.move(file, target);
+        return target;
+    }
+}
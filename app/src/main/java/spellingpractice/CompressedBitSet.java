@@ -0,0 +1,159 @@
+package spellingpractice;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable set of non-negative ints laid out the way Roaring bitmaps are:
+ * values are split into blocks of 65536 by their high 16 bits, and each
+ * block is a sorted array of 16-bit offsets while it is sparse, or a
+ * 1024-long bitmap once it holds more than ARRAY_LIMIT values. A posting
+ * of a few words costs a few bytes per word; a posting covering a large
+ * part of a block costs one bit per ID in it.
+ */
+final class CompressedBitSet {
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_LONGS = 1 << 10;
+
+    static final CompressedBitSet EMPTY = new Builder().build();
+
+    private final int[] keys;
+    // char[] sorted offsets or long[] bitmap, per block
+    private final Object[] containers;
+    private final int[] blockSizes;
+    private final int cardinality;
+
+    private CompressedBitSet(int[] keys, Object[] containers, int[] blockSizes, int cardinality) {
+        this.keys = keys;
+        this.containers = containers;
+        this.blockSizes = blockSizes;
+        this.cardinality = cardinality;
+    }
+
+    /**
+     * Collects values given in increasing order. Repeating the last value
+     * is allowed and ignored.
+     */
+    static final class Builder {
+        private int[] keys = new int[4];
+        private Object[] containers = new Object[4];
+        private int[] blockSizes = new int[4];
+        private int blocks;
+        private int cardinality;
+        private int last = -1;
+
+        private int key = -1;
+        private char[] offsets = new char[4];
+        private long[] bitmap;
+        private int blockSize;
+
+        void add(int value) {
+            if (value == last) {
+                return;
+            }
+            if (value < last) {
+                throw new IllegalArgumentException("Values must be added in increasing order");
+            }
+            last = value;
+
+            int high = value >>> 16;
+            if (high != key) {
+                finishBlock();
+                key = high;
+            }
+            char low = (char) value;
+            if (bitmap != null) {
+                bitmap[low >>> 6] |= 1L << low;
+            } else if (blockSize == ARRAY_LIMIT) {
+                bitmap = new long[BITMAP_LONGS];
+                for (int i = 0; i < blockSize; i++) {
+                    bitmap[offsets[i] >>> 6] |= 1L << offsets[i];
+                }
+                bitmap[low >>> 6] |= 1L << low;
+            } else {
+                if (blockSize == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, blockSize * 2);
+                }
+                offsets[blockSize] = low;
+            }
+            blockSize++;
+            cardinality++;
+        }
+
+        private void finishBlock() {
+            if (blockSize == 0) {
+                return;
+            }
+            if (blocks == keys.length) {
+                keys = Arrays.copyOf(keys, blocks * 2);
+                containers = Arrays.copyOf(containers, blocks * 2);
+                blockSizes = Arrays.copyOf(blockSizes, blocks * 2);
+            }
+            keys[blocks] = key;
+            containers[blocks] = bitmap != null ? bitmap : Arrays.copyOf(offsets, blockSize);
+            blockSizes[blocks] = blockSize;
+            blocks++;
+            offsets = new char[4];
+            bitmap = null;
+            blockSize = 0;
+        }
+
+        CompressedBitSet build() {
+            finishBlock();
+            return new CompressedBitSet(Arrays.copyOf(keys, blocks), Arrays.copyOf(containers, blocks),
+                Arrays.copyOf(blockSizes, blocks), cardinality);
+        }
+    }
+
+    int cardinality() {
+        return cardinality;
+    }
+
+    boolean contains(int value) {
+        int block = Arrays.binarySearch(keys, value >>> 16);
+        if (block < 0) {
+            return false;
+        }
+        char low = (char) value;
+        Object container = containers[block];
+        if (container instanceof long[]) {
+            return (((long[]) container)[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) container, low) >= 0;
+    }
+
+    /**
+     * Calls the action for every value, in increasing order.
+     */
+    void forEach(IntConsumer action) {
+        for (int block = 0; block < keys.length; block++) {
+            int base = keys[block] << 16;
+            Object container = containers[block];
+            if (container instanceof long[]) {
+                long[] bitmap = (long[]) container;
+                for (int i = 0; i < bitmap.length; i++) {
+                    long bits = bitmap[i];
+                    while (bits != 0) {
+                        action.accept(base | (i << 6) | Long.numberOfTrailingZeros(bits));
+                        bits &= bits - 1;
+                    }
+                }
+            } else {
+                for (char low : (char[]) container) {
+                    action.accept(base | low);
+                }
+            }
+        }
+    }
+
+    /**
+     * Approximate heap size in bytes, containers included.
+     */
+    long sizeInBytes() {
+        long bytes = 16 + 4L * keys.length * 2 + 8L * containers.length;
+        for (int block = 0; block < keys.length; block++) {
+            bytes += 16 + (containers[block] instanceof long[] ? 8L * BITMAP_LONGS : 2L * blockSizes[block]);
+        }
+        return bytes;
+    }
+}
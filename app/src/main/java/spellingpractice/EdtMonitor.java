@@ -0,0 +1,34 @@
+package spellingpractice;
+
+import java.awt.*;
+
+/**
+ * Times every event the Swing event dispatch thread handles, so a click
+ * handler that blocks the UI shows up in Metrics and as an EdtStall
+ * Flight Recorder event.
+ */
+final class EdtMonitor extends EventQueue {
+    private EdtMonitor() {
+    }
+
+    static void install() {
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(new EdtMonitor());
+    }
+
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+        PerformanceEvents.EdtStall stall = new PerformanceEvents.EdtStall();
+        stall.begin();
+        long start = System.nanoTime();
+        try {
+            super.dispatchEvent(event);
+        } finally {
+            Metrics.INSTANCE.recordEdtDispatch(System.nanoTime() - start);
+            stall.end();
+            if (stall.shouldCommit()) {
+                stall.event = event.getClass().getSimpleName() + " from " + event.getSource().getClass().getSimpleName();
+                stall.commit();
+            }
+        }
+    }
+}
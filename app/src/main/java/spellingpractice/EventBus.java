@@ -0,0 +1,235 @@
+package spellingpractice;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded ring of answer and session events from the engine's thread to
+ * the work that follows from them, so a click only fills in a slot. Built
+ * like a disruptor: slots are allocated once and reused, a publisher
+ * makes an event visible with a single volatile write, and the consumers
+ * follow on the executor, each taking everything published since its last
+ * look as one batch. The consumers take no lock, and the executor is only
+ * handed a task when they had caught up.
+ *
+ * Events normally come from the engine's thread alone, but closing an
+ * engine that is still loading replays its held-back answers on whichever
+ * thread closes it, such as a shutdown hook. Claiming and filling a slot
+ * is therefore done under the bus's monitor, which the engine's thread
+ * takes uncontended.
+ *
+ * When the slowest consumer is a whole ring behind, publishing waits for
+ * it instead of dropping events or growing. The ring holds dozens of
+ * sessions, so that only happens if a consumer is stuck; each wait is
+ * counted in Metrics.
+ */
+final class EventBus {
+    static final int CAPACITY = 1024;
+    private static final int SPINS = 100;
+    // Backs off from a microsecond, which is about the consumer's handling
+    // of a session, to a millisecond while it is stuck
+    private static final long MIN_PARK_NANOS = 1_000;
+    private static final long MAX_PARK_NANOS = 1_000_000;
+    private static final long CLOSE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long NO_TIMEOUT = Long.MAX_VALUE;
+
+    enum Type {
+        ANSWER,
+        SESSION
+    }
+
+    /**
+     * One slot of the ring, reused once every consumer is past it. Only
+     * valid during onEvent().
+     */
+    static final class Event {
+        Type type;
+        int word;
+        long time;
+        int latencyMillis;
+        boolean correct;
+        int[] session;
+    }
+
+    interface Consumer {
+        void onEvent(Event event);
+
+        /**
+         * Called after each batch, for work that only needs doing once per batch.
+         */
+        default void endOfBatch() {
+        }
+    }
+
+    private final Event[] ring = new Event[CAPACITY];
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    // Last published and last consumed sequence
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final AtomicLong consumed = new AtomicLong(-1);
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile Consumer[] consumers = new Consumer[0];
+    // Guarded by this, so a publish never hands work to an executor close() has shut down
+    private boolean closed;
+    private long nextSequence;
+
+    EventBus() {
+        ownedExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "engine-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor = ownedExecutor;
+        fill();
+    }
+
+    EventBus(Executor sharedExecutor) {
+        executor = sharedExecutor;
+        ownedExecutor = null;
+        fill();
+    }
+
+    private void fill() {
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = new Event();
+        }
+    }
+
+    /**
+     * Adds a consumer. Call it before anything is published.
+     */
+    void subscribe(Consumer consumer) {
+        Consumer[] grown = Arrays.copyOf(consumers, consumers.length + 1);
+        grown[grown.length - 1] = consumer;
+        consumers = grown;
+    }
+
+    synchronized void publishAnswer(int word, long time, int latencyMillis, boolean correct) {
+        Event event = claim();
+        event.type = Type.ANSWER;
+        event.word = word;
+        event.time = time;
+        event.latencyMillis = latencyMillis;
+        event.correct = correct;
+        event.session = null;
+        publish();
+    }
+
+    /**
+     * The session's words must not change afterwards.
+     */
+    synchronized void publishSession(int[] session) {
+        Event event = claim();
+        event.type = Type.SESSION;
+        event.session = session;
+        publish();
+    }
+
+    private Event claim() {
+        long wrapPoint = nextSequence - ring.length;
+        if (consumed.get() < wrapPoint) {
+            Metrics.INSTANCE.recordEventBusStall();
+            awaitSequence(wrapPoint, NO_TIMEOUT);
+        }
+        return ring[index(nextSequence)];
+    }
+
+    private void publish() {
+        cursor.set(nextSequence++);
+        if (!scheduled.get() && scheduled.compareAndSet(false, true)) {
+            if (closed) {
+                // Late events after shutdown are still handled, just not in the background
+                drain();
+            } else {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // A shared executor its owner has already shut down
+                    drain();
+                }
+            }
+        }
+    }
+
+    private void drain() {
+        do {
+            long from = consumed.get() + 1;
+            long to;
+            while ((to = cursor.get()) >= from) {
+                for (Consumer consumer : consumers) {
+                    handle(consumer, from, to);
+                }
+                // Frees the slots for the publisher
+                consumed.set(to);
+                from = to + 1;
+            }
+            scheduled.set(false);
+            // Anything published between the last look and clearing the flag
+        } while (cursor.get() > consumed.get() && scheduled.compareAndSet(false, true));
+    }
+
+    private void handle(Consumer consumer, long from, long to) {
+        for (long next = from; next <= to; next++) {
+            try {
+                consumer.onEvent(ring[index(next)]);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        try {
+            consumer.endOfBatch();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Waits until every consumer has handled everything published so far.
+     * The engine's thread calls it before reading state the consumers write.
+     */
+    void awaitConsumers() {
+        awaitSequence(cursor.get(), NO_TIMEOUT);
+    }
+
+    private boolean awaitSequence(long sequence, long timeoutNanos) {
+        long start = System.nanoTime();
+        int spins = 0;
+        long park = MIN_PARK_NANOS;
+        while (consumed.get() < sequence) {
+            if (spins < SPINS) {
+                spins++;
+                Thread.onSpinWait();
+            } else if (timeoutNanos != NO_TIMEOUT && System.nanoTime() - start > timeoutNanos) {
+                return false;
+            } else {
+                LockSupport.parkNanos(park);
+                park = Math.min(MAX_PARK_NANOS, park * 2);
+            }
+        }
+        return true;
+    }
+
+    private static int index(long sequence) {
+        return (int) sequence & (CAPACITY - 1);
+    }
+
+    /**
+     * Waits for the consumers to catch up and stops handing them to the
+     * executor. Anything published afterwards is handled on the publishing
+     * thread. Safe to call more than once.
+     */
+    void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        if (!awaitSequence(cursor.get(), CLOSE_TIMEOUT_NANOS)) {
+            System.err.println("Timed out waiting for event consumers");
+        }
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package spellingpractice;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Headless HTTP server that hosts practice sessions for many learners in
+ * one process. Each learner has its own engine and data directory and is
+ * locked on its own, so learners never wait on each other. A learner is
+ * loaded by the first request that needs it, outside the map's locks, and
+ * at most MAX_RESIDENT (by default) stay loaded: past that the least recently used one
+ * is written back and closed, to be loaded again on its next request.
+ * A learner in the middle of a session is never evicted, since the session
+ * itself is not saved.
+ *
+ * Endpoints (plain text, one key=value per line):
+ *   POST /session?learner=ID                 start a new session
+ *   POST /answer?learner=ID&correct=BOOL     answer the current word
+ *   GET  /stats                              server-wide counters
+ */
+public class LearnerServer {
+    private static final Pattern LEARNER_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final int DEFAULT_PORT = 8080;
+    static final int MAX_RESIDENT = 1000;
+
+    private final Path dataDirectory;
+    private final WordDictionary dictionary;
+    private final int maxResident;
+    // Completed once the learner has loaded, so only the loading request waits for the disk
+    private final ConcurrentHashMap<String, CompletableFuture<Learner>> learners = new ConcurrentHashMap<>();
+    // Loaded learners, least recently used first; guarded by itself
+    private final LinkedHashMap<String, CompletableFuture<Learner>> recentlyUsed = new LinkedHashMap<>(16, 0.75f, true);
+    private final ExecutorService requestExecutor;
+    private final ExecutorService persistenceExecutor;
+    private final ExecutorService eventExecutor;
+    private final LongAdder sessionsStarted = new LongAdder();
+    private final LongAdder sessionsCompleted = new LongAdder();
+    private final LongAdder answers = new LongAdder();
+    private final LongAdder mistakes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private HttpServer server;
+
+    private static class Learner {
+        final PracticeEngine engine;
+        // Written under the learner's lock; read by eviction without it
+        volatile boolean sessionActive;
+        // Set under the learner's lock once evicted; requests then load it again
+        boolean closed;
+
+        Learner(PracticeEngine engine) {
+            this.engine = engine;
+        }
+    }
+
+    LearnerServer(Path dataDirectory, WordDictionary dictionary) {
+        this(dataDirectory, dictionary, MAX_RESIDENT);
+    }
+
+    LearnerServer(Path dataDirectory, WordDictionary dictionary, int maxResident) {
+        this.dataDirectory = dataDirectory;
+        this.dictionary = dictionary;
+        this.maxResident = maxResident;
+        this.requestExecutor = newRequestExecutor();
+        int writers = Math.max(2, Runtime.getRuntime().availableProcessors());
+        this.persistenceExecutor = Executors.newFixedThreadPool(writers, runnable -> {
+            Thread thread = new Thread(runnable, "learner-persistence");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.eventExecutor = Executors.newFixedThreadPool(writers, runnable -> {
+            Thread thread = new Thread(runnable, "learner-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Virtual threads where the runtime has them (Java 21+), a bounded pool otherwise
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 4);
+        }
+    }
+
+    public int start(int port) throws IOException {
+        // Small text responses otherwise sit behind Nagle's algorithm for ~40 ms
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.createContext("/session", exchange -> handle(exchange, this::startSession));
+        server.createContext("/answer", exchange -> handle(exchange, this::answer));
+        server.createContext("/stats", exchange -> handle(exchange, query -> stats()));
+        server.setExecutor(requestExecutor);
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and flushes every learner's progress.
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(1);
+        }
+        requestExecutor.shutdown();
+        for (CompletableFuture<Learner> loaded : learners.values()) {
+            if (loaded.isDone() && !loaded.isCompletedExceptionally()) {
+                close(loaded.join());
+            }
+        }
+        eventExecutor.shutdown();
+        persistenceExecutor.shutdown();
+    }
+
+    private interface Handler {
+        String handle(Map<String, String> query);
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        int status = 200;
+        String body;
+        try {
+            body = handler.handle(parseQuery(exchange.getRequestURI().getRawQuery()));
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            body = "error=" + e.getMessage() + "\n";
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            status = 500;
+            body = "error=internal\n";
+        }
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    // Runs the action under the learner's lock, loading the learner if needed
+    private String withLearner(Map<String, String> query, Function<Learner, String> action) {
+        String id = query.get("learner");
+        if (id == null || !LEARNER_ID.matcher(id).matches()) {
+            throw new IllegalArgumentException("invalid learner id");
+        }
+        while (true) {
+            Learner learner = learner(id);
+            synchronized (learner) {
+                if (!learner.closed) {
+                    synchronized (recentlyUsed) {
+                        recentlyUsed.get(id);
+                    }
+                    return action.apply(learner);
+                }
+            }
+            // Evicted between lookup and lock; load it again
+        }
+    }
+
+    private Learner learner(String id) {
+        CompletableFuture<Learner> loading = new CompletableFuture<>();
+        CompletableFuture<Learner> existing = learners.putIfAbsent(id, loading);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        try {
+            loading.complete(loadLearner(id));
+            synchronized (recentlyUsed) {
+                recentlyUsed.put(id, loading);
+            }
+        } catch (RuntimeException e) {
+            // The next request tries again
+            learners.remove(id, loading);
+            loading.completeExceptionally(e);
+            throw e;
+        }
+        evictLeastRecentlyUsed(id);
+        return loading.join();
+    }
+
+    // Never the learner just loaded, which is about to be used
+    private void evictLeastRecentlyUsed(String loadedId) {
+        while (true) {
+            String eldestId = null;
+            CompletableFuture<Learner> eldest = null;
+            synchronized (recentlyUsed) {
+                if (recentlyUsed.size() <= maxResident) {
+                    return;
+                }
+                for (Map.Entry<String, CompletableFuture<Learner>> entry : recentlyUsed.entrySet()) {
+                    if (!entry.getKey().equals(loadedId) && !entry.getValue().join().sessionActive) {
+                        eldestId = entry.getKey();
+                        eldest = entry.getValue();
+                        break;
+                    }
+                }
+                if (eldest == null) {
+                    // Everyone loaded is mid-session
+                    return;
+                }
+                recentlyUsed.remove(eldestId);
+            }
+
+            Learner learner = eldest.join();
+            synchronized (learner) {
+                if (learner.sessionActive) {
+                    // Started a session since it was picked; keep it
+                    synchronized (recentlyUsed) {
+                        recentlyUsed.put(eldestId, eldest);
+                    }
+                    continue;
+                }
+                learners.remove(eldestId, eldest);
+                close(learner);
+            }
+            evictions.increment();
+        }
+    }
+
+    private static void close(Learner learner) {
+        synchronized (learner) {
+            if (!learner.closed) {
+                learner.closed = true;
+                // Writes back pending progress, history and answers
+                learner.engine.close();
+            }
+        }
+    }
+
+    private Learner loadLearner(String id) {
+        Path directory = dataDirectory.resolve(id);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        PracticeEngine engine = new PracticeEngine(dictionary, directory,
+            new Random(), new PersistenceWriter(persistenceExecutor), new EventBus(eventExecutor));
+        boolean loaded;
+        try {
+            loaded = engine.load();
+        } catch (RuntimeException e) {
+            engine.close();
+            throw e;
+        }
+        if (!loaded) {
+            engine.close();
+            throw new IllegalStateException("No words to practice");
+        }
+        return new Learner(engine);
+    }
+
+    private String startSession(Map<String, String> query) {
+        return withLearner(query, learner -> {
+            learner.engine.startNewSession();
+            learner.sessionActive = true;
+            sessionsStarted.increment();
+            return describe(learner.engine);
+        });
+    }
+
+    private String answer(Map<String, String> query) {
+        String correct = query.get("correct");
+        if (!"true".equals(correct) && !"false".equals(correct)) {
+            throw new IllegalArgumentException("correct must be true or false");
+        }
+
+        return withLearner(query, learner -> {
+            PracticeEngine engine = learner.engine;
+            if (!learner.sessionActive) {
+                throw new IllegalArgumentException("no active session");
+            }
+
+            if (Boolean.parseBoolean(correct)) {
+                engine.markCorrect();
+            } else {
+                engine.markWrong();
+                mistakes.increment();
+            }
+            answers.increment();
+
+            if (engine.isSessionComplete()) {
+                engine.completeSession();
+                learner.sessionActive = false;
+                sessionsCompleted.increment();
+            }
+            return describe(engine);
+        });
+    }
+
+    private static String describe(PracticeEngine engine) {
+        StringBuilder body = new StringBuilder();
+        if (engine.isSessionComplete()) {
+            body.append("complete=true\n");
+        } else {
+            body.append("word=").append(engine.getCurrentWord()).append('\n');
+            body.append("index=").append(engine.getCurrentWordIndex() + 1).append('\n');
+            body.append("total=").append(engine.getSessionWords().size()).append('\n');
+        }
+        body.append("correct=").append(engine.getSessionCorrect()).append('\n');
+        body.append("wrong=").append(engine.getSessionWrong()).append('\n');
+        return body.toString();
+    }
+
+    private String stats() {
+        return "learners=" + learners.size() + "\n"
+            + "sessionsStarted=" + sessionsStarted.sum() + "\n"
+            + "sessionsCompleted=" + sessionsCompleted.sum() + "\n"
+            + "answers=" + answers.sum() + "\n"
+            + "mistakes=" + mistakes.sum() + "\n"
+            + "learnersEvicted=" + evictions.sum() + "\n";
+    }
+
+    /**
+     * Usage: LearnerServer [port] [data directory] [word list file] [metrics file]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        Path dataDirectory = Paths.get(args.length > 1 ? args[1] : "learners");
+
+        WordDictionary dictionary = args.length > 2
+            ? WordListLoader.load(Paths.get(args[2]), null, Integer.MAX_VALUE)
+            : WordListLoader.loadDefault();
+
+        Metrics.register();
+        if (args.length > 3) {
+            Metrics.startDump(Paths.get(args[3]), 60);
+        }
+
+        LearnerServer learnerServer = new LearnerServer(dataDirectory, dictionary);
+        Runtime.getRuntime().addShutdownHook(new Thread(learnerServer::stop, "server-shutdown"));
+        int boundPort = learnerServer.start(port);
+        System.out.println("Spelling practice server listening on port " + boundPort);
+    }
+}
@@ -0,0 +1,268 @@
+package spellingpractice;
+
+import javax.management.*;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide performance counters: startup, session build times,
+ * persistence latency, data loading, answer rate, event thread stalls and the memory
+ * held by per-word statistics. Readable over JMX, and optionally appended
+ * to a file every so often as one key=value line, so a slow machine in the
+ * field can be diagnosed from the file alone.
+ */
+public final class Metrics implements MetricsMBean {
+    static final Metrics INSTANCE = new Metrics();
+
+    static final String OBJECT_NAME = "spellingpractice:type=Metrics";
+    private static final long STALL_NANOS = 50_000_000;
+    private static final int RATE_SECONDS = 60;
+
+    final LatencyHistogram sessionBuild = new LatencyHistogram();
+    final LatencyHistogram sessionStart = new LatencyHistogram();
+    final LatencyHistogram persistence = new LatencyHistogram();
+    final LatencyHistogram dataLoad = new LatencyHistogram();
+    final LatencyHistogram edtDispatch = new LatencyHistogram();
+    private final LongAdder answers = new LongAdder();
+    private final LongAdder edtStalls = new LongAdder();
+    private final LongAdder eventBusStalls = new LongAdder();
+    // Milliseconds from JVM start, -1 until reached
+    private final AtomicLong firstWordMillis = new AtomicLong(-1);
+    private final AtomicLong loadedMillis = new AtomicLong(-1);
+
+    // Answers per second over the last minute, one slot per second
+    private final AtomicLongArray answerSlots = new AtomicLongArray(RATE_SECONDS);
+    private final AtomicLongArray answerSlotSecond = new AtomicLongArray(RATE_SECONDS);
+
+    private final Set<PracticeEngine> engines = Collections.synchronizedSet(
+        Collections.newSetFromMap(new WeakHashMap<>()));
+    private ScheduledExecutorService dumper;
+
+    private Metrics() {
+    }
+
+    /**
+     * Registers the MBean with the platform server. Safe to call more than once.
+     */
+    static void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(INSTANCE, name);
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Appends a line of metrics to the file every period, on a daemon thread.
+     */
+    static synchronized void startDump(Path file, long periodSeconds) {
+        if (INSTANCE.dumper != null) {
+            return;
+        }
+        INSTANCE.dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        INSTANCE.dumper.scheduleAtFixedRate(() -> {
+            try {
+                Files.write(file, (INSTANCE.describe() + "\n").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    void track(PracticeEngine engine) {
+        engines.add(engine);
+    }
+
+    // Closed engines stop counting at once rather than when collected
+    void untrack(PracticeEngine engine) {
+        engines.remove(engine);
+    }
+
+    void recordAnswer() {
+        answers.increment();
+        long second = System.currentTimeMillis() / 1000;
+        int slot = (int) (second % RATE_SECONDS);
+        long slotSecond = answerSlotSecond.get(slot);
+        if (slotSecond != second && answerSlotSecond.compareAndSet(slot, slotSecond, second)) {
+            answerSlots.set(slot, 0);
+        }
+        answerSlots.incrementAndGet(slot);
+    }
+
+    /**
+     * The first word is on screen. Only the first call counts.
+     */
+    void recordFirstWord() {
+        firstWordMillis.compareAndSet(-1, ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    /**
+     * The first profile's progress and history have loaded. Only the first call counts.
+     */
+    void recordLoaded() {
+        loadedMillis.compareAndSet(-1, ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    void recordEventBusStall() {
+        eventBusStalls.increment();
+    }
+
+    void recordEdtDispatch(long nanos) {
+        edtDispatch.record(nanos);
+        if (nanos >= STALL_NANOS) {
+            edtStalls.increment();
+        }
+    }
+
+    /**
+     * Current values as one line of key=value pairs.
+     */
+    String describe() {
+        return String.format(Locale.ROOT,
+            "time=%d firstWordMs=%d loadedMs=%d sessionBuilds=%d sessionBuildMeanMs=%.3f sessionBuildP99Ms=%.3f sessionStartP99Ms=%.3f"
+                + " persistenceWrites=%d persistenceP50Ms=%.3f persistenceP99Ms=%.3f persistenceMaxMs=%.3f"
+                + " dataLoadMaxMs=%.3f answers=%d answersPerSecond=%.2f"
+                + " edtStalls=%d edtDispatchP99Ms=%.3f edtMaxStallMs=%.3f eventBusStalls=%d"
+                + " statisticsBytes=%d heapUsedBytes=%d",
+            System.currentTimeMillis(), getTimeToFirstWordMillis(), getTimeToLoadedMillis(), getSessionBuildCount(), getSessionBuildMeanMillis(),
+            getSessionBuildP99Millis(), getSessionStartP99Millis(),
+            getPersistenceWriteCount(), getPersistenceP50Millis(), getPersistenceP99Millis(),
+            getPersistenceMaxMillis(), getDataLoadMaxMillis(), getAnswerCount(), getAnswersPerSecond(),
+            getEdtStallCount(), getEdtDispatchP99Millis(), getEdtMaxStallMillis(), getEventBusStallCount(),
+            getStatisticsFootprintBytes(),
+            Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory());
+    }
+
+    @Override
+    public long getTimeToFirstWordMillis() {
+        return firstWordMillis.get();
+    }
+
+    @Override
+    public long getTimeToLoadedMillis() {
+        return loadedMillis.get();
+    }
+
+    @Override
+    public long getSessionBuildCount() {
+        return sessionBuild.count();
+    }
+
+    @Override
+    public double getSessionBuildMeanMillis() {
+        return sessionBuild.meanMillis();
+    }
+
+    @Override
+    public double getSessionBuildP99Millis() {
+        return sessionBuild.percentileMillis(99);
+    }
+
+    @Override
+    public double getSessionStartP99Millis() {
+        return sessionStart.percentileMillis(99);
+    }
+
+    @Override
+    public long getPersistenceWriteCount() {
+        return persistence.count();
+    }
+
+    @Override
+    public double getPersistenceP50Millis() {
+        return persistence.percentileMillis(50);
+    }
+
+    @Override
+    public double getPersistenceP99Millis() {
+        return persistence.percentileMillis(99);
+    }
+
+    @Override
+    public double getPersistenceMaxMillis() {
+        return persistence.maxMillis();
+    }
+
+    @Override
+    public double getDataLoadMaxMillis() {
+        return dataLoad.maxMillis();
+    }
+
+    @Override
+    public long getAnswerCount() {
+        return answers.sum();
+    }
+
+    @Override
+    public double getAnswersPerSecond() {
+        long now = System.currentTimeMillis() / 1000;
+        long total = 0;
+        for (int slot = 0; slot < RATE_SECONDS; slot++) {
+            if (now - answerSlotSecond.get(slot) < RATE_SECONDS) {
+                total += answerSlots.get(slot);
+            }
+        }
+        return total / (double) RATE_SECONDS;
+    }
+
+    @Override
+    public long getEdtStallCount() {
+        return edtStalls.sum();
+    }
+
+    @Override
+    public double getEdtDispatchP99Millis() {
+        return edtDispatch.percentileMillis(99);
+    }
+
+    @Override
+    public double getEdtMaxStallMillis() {
+        return edtDispatch.maxMillis();
+    }
+
+    @Override
+    public long getEventBusStallCount() {
+        return eventBusStalls.sum();
+    }
+
+    @Override
+    public long getStatisticsFootprintBytes() {
+        long bytes = 0;
+        synchronized (engines) {
+            for (PracticeEngine engine : engines) {
+                if (!engine.isLoading()) {
+                    bytes += engine.statisticsFootprintBytes();
+                }
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public void reset() {
+        sessionBuild.reset();
+        sessionStart.reset();
+        persistence.reset();
+        dataLoad.reset();
+        edtDispatch.reset();
+        answers.reset();
+        edtStalls.reset();
+        eventBusStalls.reset();
+    }
+}
@@ -0,0 +1,48 @@
+package spellingpractice;
+
+/**
+ * Management interface of {@link Metrics}, registered as
+ * spellingpractice:type=Metrics. Times are in milliseconds.
+ */
+public interface MetricsMBean {
+    /** From JVM start to the first word on screen, or -1 before that. */
+    long getTimeToFirstWordMillis();
+
+    /** From JVM start to the learner's progress being loaded, or -1 before that. */
+    long getTimeToLoadedMillis();
+
+    long getSessionBuildCount();
+
+    double getSessionBuildMeanMillis();
+
+    double getSessionBuildP99Millis();
+
+    double getSessionStartP99Millis();
+
+    long getPersistenceWriteCount();
+
+    double getPersistenceP50Millis();
+
+    double getPersistenceP99Millis();
+
+    double getPersistenceMaxMillis();
+
+    double getDataLoadMaxMillis();
+
+    long getAnswerCount();
+
+    double getAnswersPerSecond();
+
+    long getEdtStallCount();
+
+    double getEdtDispatchP99Millis();
+
+    double getEdtMaxStallMillis();
+
+    /** Times an answer waited for a full event ring to drain. */
+    long getEventBusStallCount();
+
+    long getStatisticsFootprintBytes();
+
+    void reset();
+}
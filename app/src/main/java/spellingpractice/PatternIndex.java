@@ -0,0 +1,293 @@
+package spellingpractice;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Inverted index from spelling patterns to the words that contain them,
+ * used to spread a mistake on one word to its whole phonics family: a
+ * mistake on "claw" makes "straw" and "jaw" more likely too.
+ *
+ * Patterns are the 2- and 3-letter grams of each word with ^ and $ marking
+ * its start and end, so "claw" gives ^c cl la aw w$ ^cl cla law aw$, and
+ * endings such as "ck$" or "ire$" are told apart from the same letters
+ * mid-word. Each pattern's posting list is a CompressedBitSet of word IDs.
+ *
+ * Weighted random selection adds the boost to each word's weight, and
+ * spaced repetition introduces the most boosted new words first.
+ *
+ * Every mistake raises the weakness of the word's patterns by one, and
+ * weakness halves each session, so the boost follows recent mistakes.
+ * Patterns shared by too many words ("er", "^s") say little about a family
+ * and are never boosted, which also keeps the work per session bounded.
+ *
+ * The postings depend only on the dictionary, so they are built once per
+ * dictionary and shared by every index over it, such as each learner's on
+ * a server. Only the weakness and scratch arrays are per index.
+ */
+final class PatternIndex {
+    private static final int MIN_GRAM = 2;
+    private static final int MAX_GRAM = 3;
+    // A family is at most this share of the vocabulary, but may always have
+    // MIN_FAMILY_LIMIT words and never more than MAX_FAMILY_LIMIT
+    private static final int FAMILY_FRACTION = 20;
+    private static final int MIN_FAMILY_LIMIT = 20;
+    private static final int MAX_FAMILY_LIMIT = 2000;
+    private static final float WEIGHT_PER_PATTERN = 2;
+    private static final long MAX_BOOST = 10;
+    private static final float DECAY = 0.5f;
+    private static final float FORGET_BELOW = 0.1f;
+
+    // Weak keys, so the postings go with the last engine using the dictionary
+    private static final Map<WordDictionary, Postings> SHARED = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final WordDictionary dictionary;
+    private final Postings shared;
+    private final Map<String, Integer> patternIds;
+    private final CompressedBitSet[] postings;
+    private final int familyLimit;
+
+    // Recent weakness per pattern, and the patterns that have any
+    private final float[] weakness;
+    private int[] weakPatterns = new int[16];
+    private int weakCount;
+
+    // Per-word totals while computing a boost, cleared again afterwards
+    private final float[] scratch;
+    private int[] touched = new int[16];
+    private int touchedCount;
+
+    /**
+     * The immutable part of an index: pattern IDs and their posting lists.
+     * It never refers back to its dictionary, so the shared cache does not
+     * keep dictionaries alive.
+     */
+    private static final class Postings {
+        final Map<String, Integer> patternIds;
+        final CompressedBitSet[] lists;
+
+        Postings(Map<String, Integer> patternIds, CompressedBitSet[] lists) {
+            this.patternIds = patternIds;
+            this.lists = lists;
+        }
+
+        long sizeInBytes() {
+            long bytes = 0;
+            for (CompressedBitSet posting : lists) {
+                bytes += posting.sizeInBytes();
+            }
+            return bytes;
+        }
+    }
+
+    private PatternIndex(WordDictionary dictionary, Postings shared) {
+        this.dictionary = dictionary;
+        this.shared = shared;
+        this.patternIds = shared.patternIds;
+        this.postings = shared.lists;
+        this.familyLimit = Math.min(MAX_FAMILY_LIMIT,
+            Math.max(MIN_FAMILY_LIMIT, dictionary.size() / FAMILY_FRACTION));
+        this.weakness = new float[postings.length];
+        this.scratch = new float[dictionary.size()];
+    }
+
+    /**
+     * A new index with no weakness yet, over the dictionary's shared
+     * postings. The first call for a dictionary builds them.
+     */
+    static PatternIndex build(WordDictionary dictionary) {
+        Postings postings;
+        // Held while building, so engines loading together build them once
+        synchronized (SHARED) {
+            postings = SHARED.computeIfAbsent(dictionary, PatternIndex::buildPostings);
+        }
+        return new PatternIndex(dictionary, postings);
+    }
+
+    private static Postings buildPostings(WordDictionary dictionary) {
+        Map<String, Integer> ids = new HashMap<>();
+        List<CompressedBitSet.Builder> builders = new ArrayList<>();
+        for (int id = 0; id < dictionary.size(); id++) {
+            int word = id;
+            forEachPattern(dictionary.word(id), pattern -> {
+                Integer patternId = ids.get(pattern);
+                if (patternId == null) {
+                    patternId = builders.size();
+                    ids.put(pattern, patternId);
+                    builders.add(new CompressedBitSet.Builder());
+                }
+                // Word IDs only grow, so each posting is built in order
+                builders.get(patternId).add(word);
+            });
+        }
+
+        CompressedBitSet[] postings = new CompressedBitSet[builders.size()];
+        for (int i = 0; i < postings.length; i++) {
+            postings[i] = builders.get(i).build();
+        }
+        return new Postings(ids, postings);
+    }
+
+    static void forEachPattern(String word, Consumer<String> action) {
+        String marked = "^" + word + "$";
+        for (int length = MIN_GRAM; length <= MAX_GRAM; length++) {
+            for (int start = 0; start + length <= marked.length(); start++) {
+                action.accept(marked.substring(start, start + length));
+            }
+        }
+    }
+
+    int patternCount() {
+        return postings.length;
+    }
+
+    /**
+     * Approximate heap size of this index's own arrays. The shared postings
+     * are left out, since they are not freed with it; see
+     * sharedSizeInBytes().
+     */
+    long sizeInBytes() {
+        return 4L * weakness.length + 4L * scratch.length;
+    }
+
+    /**
+     * Approximate heap size of the postings shared by every index over the
+     * same dictionary, leaving out the pattern strings.
+     */
+    long sharedSizeInBytes() {
+        return shared.sizeInBytes();
+    }
+
+    /**
+     * The words containing the pattern (such as "aw", "ck$" or "^kn").
+     */
+    CompressedBitSet wordsWith(String pattern) {
+        Integer id = patternIds.get(pattern);
+        return id == null ? CompressedBitSet.EMPTY : postings[id];
+    }
+
+    /**
+     * Returns whether any of the word's patterns got weaker, and so whether
+     * boost() changed; false when they are all too common to boost.
+     */
+    boolean recordMistake(int wordId) {
+        boolean[] weakened = {false};
+        forEachPattern(dictionary.word(wordId), pattern -> {
+            int id = patternIds.getOrDefault(pattern, -1);
+            if (id < 0 || postings[id].cardinality() > familyLimit) {
+                return;
+            }
+            weakened[0] = true;
+            if (weakness[id] == 0) {
+                if (weakCount == weakPatterns.length) {
+                    weakPatterns = Arrays.copyOf(weakPatterns, weakCount * 2);
+                }
+                weakPatterns[weakCount++] = id;
+            }
+            weakness[id] += 1;
+        });
+        return weakened[0];
+    }
+
+    /**
+     * Fades all weakness by one session's worth.
+     */
+    void decay() {
+        int kept = 0;
+        for (int i = 0; i < weakCount; i++) {
+            int id = weakPatterns[i];
+            weakness[id] *= DECAY;
+            if (weakness[id] < FORGET_BELOW) {
+                weakness[id] = 0;
+            } else {
+                weakPatterns[kept++] = id;
+            }
+        }
+        weakCount = kept;
+    }
+
+    /**
+     * Extra selection weight for every word in a weak family, as it stands
+     * now. The result does not change afterwards, so it can be handed to
+     * another thread.
+     */
+    FamilyBoost boost() {
+        if (weakCount == 0) {
+            return FamilyBoost.NONE;
+        }
+
+        touchedCount = 0;
+        for (int i = 0; i < weakCount; i++) {
+            float amount = weakness[weakPatterns[i]] * WEIGHT_PER_PATTERN;
+            postings[weakPatterns[i]].forEach(word -> addBoost(word, amount));
+        }
+
+        int[] ids = Arrays.copyOf(touched, touchedCount);
+        Arrays.sort(ids);
+        long[] values = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            values[i] = Math.min(MAX_BOOST, Math.round(scratch[ids[i]]));
+            scratch[ids[i]] = 0;
+        }
+        return new FamilyBoost(ids, values);
+    }
+
+    private void addBoost(int word, float amount) {
+        if (scratch[word] == 0) {
+            if (touchedCount == touched.length) {
+                touched = Arrays.copyOf(touched, touchedCount * 2);
+            }
+            touched[touchedCount++] = word;
+        }
+        scratch[word] += amount;
+    }
+
+    /**
+     * Word IDs, ascending, with the weight to add to each.
+     */
+    static final class FamilyBoost {
+        static final FamilyBoost NONE = new FamilyBoost(new int[0], new long[0]);
+
+        private final int[] ids;
+        private final long[] values;
+
+        private FamilyBoost(int[] ids, long[] values) {
+            this.ids = ids;
+            this.values = values;
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        /**
+         * The boosted word IDs, most boosted first and by ID among equals.
+         */
+        int[] strongestFirst() {
+            // Both fit in one long: the boost is at most MAX_BOOST
+            long[] keys = new long[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                keys[i] = (MAX_BOOST - values[i]) << 32 | ids[i];
+            }
+            Arrays.sort(keys);
+            int[] ordered = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                ordered[i] = (int) keys[i];
+            }
+            return ordered;
+        }
+
+        /**
+         * Adds the boost to the weights of a pool sorted by word ID. Costs
+         * O(k log n) for k boosted words, however large the pool.
+         */
+        void apply(int[] pool, int poolSize, long[] weights) {
+            for (int i = 0; i < ids.length; i++) {
+                int position = Arrays.binarySearch(pool, 0, poolSize, ids[i]);
+                if (position >= 0) {
+                    weights[position] += values[i];
+                }
+            }
+        }
+    }
+}
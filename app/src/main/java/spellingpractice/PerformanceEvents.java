@@ -0,0 +1,55 @@
+package spellingpractice;
+
+import jdk.jfr.*;
+
+/**
+ * Custom Flight Recorder events. They cost next to nothing unless a
+ * recording is running; start one with
+ * <pre>
+ *   java -XX:StartFlightRecording=filename=practice.jfr ...
+ * </pre>
+ * and look under "Spelling Practice" in JDK Mission Control.
+ */
+final class PerformanceEvents {
+    private PerformanceEvents() {
+    }
+
+    @Name("spellingpractice.SessionBuild")
+    @Label("Session Build")
+    @Category("Spelling Practice")
+    @Description("Picking the words for one session")
+    static final class SessionBuild extends Event {
+        @Label("Words")
+        int words;
+
+        @Label("Prefetched")
+        @Description("Built in the background ahead of time")
+        boolean prefetched;
+    }
+
+    @Name("spellingpractice.PersistenceWrite")
+    @Label("Persistence Write")
+    @Category("Spelling Practice")
+    static final class PersistenceWrite extends Event {
+        @Label("Key")
+        String key;
+    }
+
+    @Name("spellingpractice.DataLoad")
+    @Label("Data Load")
+    @Category("Spelling Practice")
+    static final class DataLoad extends Event {
+        @Label("Data")
+        String data;
+    }
+
+    @Name("spellingpractice.EdtStall")
+    @Label("Event Thread Stall")
+    @Category("Spelling Practice")
+    @Description("A Swing event that kept the event dispatch thread busy")
+    @Threshold("50 ms")
+    static final class EdtStall extends Event {
+        @Label("Event")
+        String event;
+    }
+}
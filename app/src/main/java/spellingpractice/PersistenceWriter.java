@@ -0,0 +1,112 @@
+package spellingpractice;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs file writes in the background so the Swing event thread never
+ * blocks on disk. Writes are keyed: submitting a key that is already
+ * waiting replaces the earlier task, so a burst of changes to the same
+ * state turns into one flush.
+ *
+ * Writes from one writer always run one at a time and in order, even when
+ * many writers share a thread pool (as the learner server does).
+ */
+class PersistenceWriter {
+    private static final long CLOSE_TIMEOUT_MILLIS = 10_000;
+
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final Map<String, Runnable> pending = new LinkedHashMap<>();
+    private boolean scheduled;
+    private boolean closed;
+
+    PersistenceWriter() {
+        ownedExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "persistence-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor = ownedExecutor;
+    }
+
+    PersistenceWriter(Executor sharedExecutor) {
+        executor = sharedExecutor;
+        ownedExecutor = null;
+    }
+
+    synchronized void submit(String key, Runnable write) {
+        if (closed) {
+            // Late writes after shutdown still go to disk, just not in the background
+            run(key, write);
+            return;
+        }
+
+        pending.put(key, write);
+        if (!scheduled) {
+            scheduled = true;
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Map<String, Runnable> writes;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    scheduled = false;
+                    notifyAll();
+                    return;
+                }
+                writes = new LinkedHashMap<>(pending);
+                pending.clear();
+            }
+
+            for (Map.Entry<String, Runnable> write : writes.entrySet()) {
+                run(write.getKey(), write.getValue());
+            }
+        }
+    }
+
+    private static void run(String key, Runnable write) {
+        PerformanceEvents.PersistenceWrite event = new PerformanceEvents.PersistenceWrite();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            write.run();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            Metrics.INSTANCE.persistence.record(System.nanoTime() - start);
+            event.key = key;
+            event.commit();
+        }
+    }
+
+    /**
+     * Waits for everything that is queued and stops accepting background
+     * work. Safe to call more than once.
+     */
+    void close() {
+        synchronized (this) {
+            closed = true;
+            long deadline = System.currentTimeMillis() + CLOSE_TIMEOUT_MILLIS;
+            try {
+                while (scheduled) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        System.err.println("Timed out waiting for pending writes");
+                        break;
+                    }
+                    wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+}
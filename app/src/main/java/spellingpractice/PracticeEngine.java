@@ -0,0 +1,1028 @@
+package spellingpractice;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Session, selection and progress logic with no Swing dependencies.
+ * Words are interned in a WordDictionary and all per-word state is kept in
+ * primitive arrays indexed by word ID.
+ * Not thread-safe: call it from one thread (the EDT in the desktop app).
+ * The only work done elsewhere is persistence, loading when asked to (see
+ * loadInBackground) and, when enabled, building the next session in
+ * advance (see setSessionPrefetch).
+ *
+ * Answering a word only updates the session, the mistake count and the
+ * pattern index, then publishes an event (see EventBus). Consumers of the
+ * events queue the answer log, journal and sync writes, keep the ranking
+ * and the spaced-repetition schedule up to date, and count answers for
+ * Metrics. Anything that reads what they keep waits for them first.
+ */
+public class PracticeEngine implements Closeable {
+    public static final int WORDS_PER_SESSION = 30;
+    public static final int SESSIONS_TO_AVOID = 2;
+    // Words falling due after a spaced session was prefetched wait for the
+    // one after it, unless the learner comes back later than this
+    private static final long PREFETCH_MAX_AGE_MILLIS = 10 * 60 * 1000;
+
+    public enum SelectionMode {
+        /** Weighted random draw, favouring words with more mistakes. */
+        WEIGHTED_RANDOM,
+        /** Due words from the spaced-repetition schedule, then new words. */
+        SPACED_REPETITION;
+
+        /**
+         * The mode named on a command line: "weighted" or "spaced".
+         */
+        public static SelectionMode fromName(String name) {
+            switch (name) {
+                case "weighted": return WEIGHTED_RANDOM;
+                case "spaced": return SPACED_REPETITION;
+                default: throw new IllegalArgumentException("Unknown selection mode " + name);
+            }
+        }
+    }
+
+    private final WordDictionary dictionary;
+    private final SessionHistoryStore historyStore;
+    private final Path scheduleFile;
+    private final Path dataDirectory;
+    private final ProgressStore progressStore;
+    private final AnswerLog answerLog;
+    private final PersistenceWriter persistence;
+    private final EventBus events;
+    private final Random random;
+
+    private int[] mistakeCount;
+    // Kept by the statistics consumer, with its own copy of the counts
+    private RankingIndex ranking;
+    private int[] rankedCounts;
+    // Written where the structures it counts are built or dropped, read by Metrics
+    private volatile long footprintBytes;
+    private SelectionMode selectionMode = SelectionMode.WEIGHTED_RANDOM;
+    private SpacedRepetitionScheduler scheduler;
+    // Mistakes from other devices read during this load, for the schedule
+    private int[] importedMistakes;
+    private ProgressSync sync;
+    private boolean familyBoost;
+    private boolean rankingAtLoad;
+    private PatternIndex patterns;
+    private LongSupplier clock = System::currentTimeMillis;
+    private int[] sessionWords = new int[0];
+    private int[] currentSessionMistakes = new int[WORDS_PER_SESSION];
+    private RecencyWindow recentSessions;
+    private int currentWordIndex = 0;
+    private int sessionCorrect = 0;
+    private int sessionWrong = 0;
+    // When the current word was first offered, for response latency
+    private long wordShownNanos;
+
+    // While loading in the background: what was practised in the meantime
+    private volatile boolean loading;
+    private CompletableFuture<Boolean> loadTask;
+    private CompletableFuture<Boolean> loadFinished;
+    private AnswerHistory provisionalAnswers = new AnswerHistory();
+    private final List<int[]> provisionalSessions = new ArrayList<>();
+
+    // Next session built in the background while the current one is practiced
+    private Executor prefetchExecutor;
+    private CompletableFuture<int[]> prefetched;
+    // Words left out of the prefetched session's pool, or null if it backfilled
+    private BitSet prefetchExcluded;
+    private int prefetchWindowVersion;
+    // A mistake changed the weights the prefetched session was drawn with;
+    // it is built again once, when the session completes
+    private boolean prefetchStale;
+    private final AtomicInteger prefetchGeneration = new AtomicInteger();
+    // Spaced repetition: the scheduler's new word position to go back to if
+    // the prefetched session is thrown away, or -1, and when it was built
+    private int prefetchNewWord = -1;
+    private long prefetchBuiltAt;
+
+    // Mistakes waiting for the persistence thread
+    private final Object unsavedLock = new Object();
+    private int[] unsavedMistakes = new int[16];
+    private int unsavedCount = 0;
+    private AnswerHistory unsavedAnswers = new AnswerHistory();
+
+    public PracticeEngine(List<String> words, Path dataDirectory, Random random) {
+        this(WordDictionary.of(words), dataDirectory, random);
+    }
+
+    PracticeEngine(WordDictionary dictionary, Path dataDirectory, Random random) {
+        this(dictionary, dataDirectory, random, new PersistenceWriter());
+    }
+
+    PracticeEngine(WordDictionary dictionary, Path dataDirectory, Random random, PersistenceWriter persistence) {
+        this(dictionary, dataDirectory, random, persistence, new EventBus());
+    }
+
+    PracticeEngine(WordDictionary dictionary, Path dataDirectory, Random random, PersistenceWriter persistence,
+            EventBus events) {
+        this.dictionary = dictionary;
+        this.historyStore = new SessionHistoryStore(dataDirectory, dictionary);
+        this.progressStore = new ProgressStore(dataDirectory, dictionary);
+        this.answerLog = new AnswerLog(dataDirectory, dictionary);
+        this.scheduleFile = dataDirectory.resolve(SpacedRepetitionScheduler.SCHEDULE_FILE);
+        this.dataDirectory = dataDirectory;
+        this.random = random;
+        this.persistence = persistence;
+        this.events = events;
+        this.mistakeCount = new int[dictionary.size()];
+        this.recentSessions = new RecencyWindow(dictionary.size(), SESSIONS_TO_AVOID);
+        events.subscribe(new PersistenceConsumer());
+        events.subscribe(new StatisticsConsumer());
+        events.subscribe(event -> {
+            if (event.type == EventBus.Type.ANSWER) {
+                Metrics.INSTANCE.recordAnswer();
+            }
+        });
+    }
+
+    /**
+     * Sets how many past sessions are avoided when picking words. Call it
+     * before load(); sessions beyond the new depth are forgotten.
+     */
+    public void setSessionsToAvoid(int depth) {
+        RecencyWindow window = new RecencyWindow(dictionary.size(), depth);
+        for (int[] session : recentSessions.sessions()) {
+            window.add(session);
+        }
+        recentSessions = window;
+        discardPrefetch();
+    }
+
+    /**
+     * Builds each next session on the given executor in advance, so starting
+     * it costs next to nothing. With weighted random selection it is built
+     * while the current session is being practiced. The spaced-repetition
+     * schedule depends on every answer, so there it is built once the
+     * session completes, and thrown away if the next one starts much later.
+     * The executor must not be the one the events are handled on.
+     */
+    public void setSessionPrefetch(Executor executor) {
+        prefetchExecutor = executor;
+        discardPrefetch();
+    }
+
+    /**
+     * Merges progress with other machines through the given folder (see
+     * ProgressSync): new activity from other devices is only read in by
+     * load(), not while practicing, and each completed session is written
+     * out. Mistakes made elsewhere add to the counts, and with spaced
+     * repetition make the word due again. Call it before load().
+     */
+    public void setSyncDirectory(Path syncDirectory) {
+        sync = syncDirectory == null ? null : new ProgressSync(dataDirectory, syncDirectory, dictionary);
+    }
+
+    /**
+     * Makes a mistake on a word also favour the words that share its
+     * spelling patterns (see PatternIndex). Weighted random selection draws
+     * them more often; spaced repetition introduces them before other new
+     * words. Call it before load().
+     */
+    public void setFamilyBoost(boolean enabled) {
+        familyBoost = enabled;
+    }
+
+    /**
+     * Builds the statistics ranking (see getRanking()) as part of load(),
+     * so the statistics view never builds it on the event thread. Engines
+     * that never show statistics, such as the server's, leave it off and
+     * save the memory. Call it before load().
+     */
+    public void setRankingAtLoad(boolean enabled) {
+        rankingAtLoad = enabled;
+    }
+
+    /**
+     * Chooses how sessions are picked. Call it before load().
+     */
+    public void setSelectionMode(SelectionMode mode) {
+        selectionMode = mode;
+    }
+
+    public SelectionMode getSelectionMode() {
+        return selectionMode;
+    }
+
+    // Time source for scheduling, replaceable for simulations
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Loads progress and session history. Returns false if there are no
+     * words to practice, and throws UncheckedIOException if the progress
+     * cannot be read, since no mistake could be recorded after that.
+     */
+    public boolean load() {
+        if (dictionary.size() == 0) {
+            return false;
+        }
+        Metrics.INSTANCE.track(this);
+        timeLoad("progress", this::loadProgress);
+        timeLoad("history", this::loadSessionHistory);
+        if (sync != null) {
+            timeLoad("sync", this::loadSync);
+        }
+        if (selectionMode == SelectionMode.SPACED_REPETITION) {
+            timeLoad("schedule", this::loadSchedule);
+        }
+        importedMistakes = null;
+        if (familyBoost && patterns == null) {
+            timeLoad("patterns", () -> patterns = PatternIndex.build(dictionary));
+        }
+        if (rankingAtLoad) {
+            // Nothing is published before loading is done, so no consumer races this
+            timeLoad("ranking", this::buildRanking);
+        }
+        updateFootprint();
+        return true;
+    }
+
+    /**
+     * Runs load() on the loader so the first word can be shown straight
+     * away. Until loading is done, startNewSession() deals provisional
+     * sessions drawn evenly from the whole list and answers are held back.
+     * Once it is done, on the engine's thread, the held-back answers and
+     * sessions are recorded as usual and the rest of the current session
+     * is redrawn from the learner's progress, keeping the words already
+     * answered and the one on screen.
+     *
+     * Meanwhile only practice is allowed: statistics, reports and the like
+     * have to wait for whenLoaded().
+     */
+    public CompletableFuture<Boolean> loadInBackground(Executor loader, Executor engineThread) {
+        loading = true;
+        loadTask = CompletableFuture.supplyAsync(this::load, loader);
+        loadFinished = loadTask.thenApplyAsync(loaded -> {
+            finishLoading();
+            return loaded;
+        }, engineThread);
+        return loadFinished;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * Completes, on the engine's thread, once loadInBackground() is done
+     * and with what load() returned. Already complete if the engine was
+     * loaded with load().
+     */
+    public CompletableFuture<Boolean> whenLoaded() {
+        return loadFinished != null ? loadFinished : CompletableFuture.completedFuture(true);
+    }
+
+    // Catches up on what was practised while loading
+    private synchronized void finishLoading() {
+        if (!loading) {
+            return;
+        }
+        loading = false;
+        for (int i = 0; i < provisionalAnswers.size(); i++) {
+            recordAnswer(provisionalAnswers.word(i), provisionalAnswers.time(i), provisionalAnswers.latency(i),
+                provisionalAnswers.correct(i));
+        }
+        provisionalAnswers = new AnswerHistory();
+        for (int[] session : provisionalSessions) {
+            recordSession(session);
+        }
+        provisionalSessions.clear();
+
+        if (!isSessionComplete()) {
+            redrawRemaining();
+            prefetchNextSession();
+        }
+    }
+
+    // Evenly drawn distinct words, while nothing is known about the learner
+    private int[] provisionalSession() {
+        int wordCount = dictionary.size();
+        int[] session = new int[Math.min(WORDS_PER_SESSION, wordCount)];
+        // Floyd's sampling, so the whole list is never touched
+        Set<Integer> chosen = new HashSet<>();
+        int size = 0;
+        for (int j = wordCount - session.length; j < wordCount; j++) {
+            int pick = random.nextInt(j + 1);
+            if (!chosen.add(pick)) {
+                pick = j;
+                chosen.add(j);
+            }
+            session[size++] = pick;
+        }
+        shuffle(session, random);
+        return session;
+    }
+
+    // The provisional words after the one on screen make way for the ones
+    // a real session would pick
+    private void redrawRemaining() {
+        int keep = currentWordIndex + 1;
+        if (keep >= sessionWords.length) {
+            return;
+        }
+        BitSet kept = new BitSet(dictionary.size());
+        for (int i = 0; i < keep; i++) {
+            kept.set(sessionWords[i]);
+        }
+
+        int[] session = Arrays.copyOf(sessionWords, sessionWords.length);
+        int size = keep;
+        for (int id : buildSession()) {
+            if (size < session.length && !kept.get(id)) {
+                kept.set(id);
+                session[size++] = id;
+            }
+        }
+        // With a tiny list the real pick may overlap; top up with provisional words
+        for (int i = keep; i < sessionWords.length && size < session.length; i++) {
+            if (!kept.get(sessionWords[i])) {
+                kept.set(sessionWords[i]);
+                session[size++] = sessionWords[i];
+            }
+        }
+        sessionWords = session;
+    }
+
+    private static void timeLoad(String data, Runnable load) {
+        PerformanceEvents.DataLoad event = new PerformanceEvents.DataLoad();
+        event.begin();
+        long start = System.nanoTime();
+        load.run();
+        Metrics.INSTANCE.dataLoad.record(System.nanoTime() - start);
+        event.data = data;
+        event.commit();
+    }
+
+    void loadSchedule() {
+        scheduler = new SpacedRepetitionScheduler(dictionary);
+        try {
+            if (Files.exists(scheduleFile)) {
+                scheduler.load(scheduleFile);
+            }
+        } catch (BinaryFormat.CorruptFileException e) {
+            scheduler = new SpacedRepetitionScheduler(dictionary);
+            try {
+                Path kept = BinaryFormat.quarantine(scheduleFile);
+                System.err.println("Schedule is corrupt, moved to " + kept + ": " + e.getMessage());
+            } catch (IOException moveFailed) {
+                moveFailed.printStackTrace();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        long now = clock.getAsLong();
+        if (importedMistakes != null) {
+            // A word missed on another device is due again here too
+            scheduler.recordMistakesElsewhere(importedMistakes, now);
+            importedMistakes = null;
+        }
+        // Words missed before the schedule knew them, here or on another
+        // device, come up first rather than waiting their turn as new words
+        scheduler.seedMistakes(mistakeCount, now);
+    }
+
+    // Counts from other devices go on top of this device's own progress
+    void loadSync() {
+        try {
+            sync.load();
+            int[] before = sync.remoteCounts().clone();
+            List<int[]> sessions = sync.importNew();
+            int[] remote = sync.remoteCounts();
+            importedMistakes = new int[mistakeCount.length];
+            for (int id = 0; id < mistakeCount.length; id++) {
+                mistakeCount[id] += remote[id];
+                importedMistakes[id] = remote[id] - before[id];
+            }
+            for (int[] session : sessions) {
+                recentSessions.add(session);
+            }
+            ranking = null;
+            discardPrefetch();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void exportProgress() {
+        try {
+            sync.export(progressStore::count);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void saveSchedule() {
+        if (scheduler == null) {
+            return;
+        }
+        BinaryFormat.Writer schedule = scheduler.encode();
+        persistence.submit("schedule", () -> {
+            try {
+                BinaryFormat.writeFile(scheduleFile, schedule);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    void loadProgress() {
+        try {
+            progressStore.load();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NumberFormatException e) {
+            throw new UncheckedIOException(new IOException("Unreadable progress in " + dataDirectory, e));
+        }
+        mistakeCount = progressStore.copyCounts();
+        ranking = null;
+        discardPrefetch();
+    }
+
+    void loadSessionHistory() {
+        recentSessions.clear();
+        try {
+            // The window keeps only the most recent sessions
+            for (int[] session : historyStore.load()) {
+                recentSessions.add(session);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void saveSessionHistory(int[] session) {
+        // Add the session to history, dropping the oldest
+        recentSessions.add(session);
+        List<int[]> sessions = recentSessions.sessions();
+
+        // Save to file in the background
+        persistence.submit("history", () -> {
+            try {
+                historyStore.save(sessions);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private void saveProgress() {
+        persistence.submit("progress", this::writeProgress);
+    }
+
+    // Runs on the persistence thread: one journal batch and one fsync per flush
+    private void writeProgress() {
+        int[] batch;
+        int size;
+        synchronized (unsavedLock) {
+            batch = unsavedMistakes;
+            size = unsavedCount;
+            unsavedMistakes = new int[16];
+            unsavedCount = 0;
+        }
+
+        try {
+            for (int i = 0; i < size; i++) {
+                if (sync != null) {
+                    sync.recordLocalMistake(batch[i]);
+                }
+                progressStore.recordMistake(batch[i]);
+            }
+            progressStore.sync();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void answer(int id, boolean correct) {
+        long now = System.nanoTime();
+        // At least a millisecond, as 0 stands for an unknown latency
+        int latency = (int) Math.max(1, Math.min((now - wordShownNanos) / 1_000_000, AnswerLog.MAX_LATENCY_MILLIS));
+        wordShownNanos = now;
+        if (loading) {
+            provisionalAnswers.add(id, clock.getAsLong(), latency, correct);
+        } else {
+            recordAnswer(id, clock.getAsLong(), latency, correct);
+        }
+    }
+
+    private void recordAnswer(int id, long time, int latency, boolean correct) {
+        if (scheduler != null) {
+            // The schedule changes with the answer
+            discardPrefetch();
+        }
+        if (!correct) {
+            recordMistake(id);
+        }
+        events.publishAnswer(id, time, latency, correct);
+    }
+
+    // Queues what the events change for the persistence thread, once per batch
+    private final class PersistenceConsumer implements EventBus.Consumer {
+        private boolean answers;
+        private boolean mistakes;
+        private boolean sessions;
+
+        @Override
+        public void onEvent(EventBus.Event event) {
+            if (event.type == EventBus.Type.SESSION) {
+                if (sync != null) {
+                    sync.queueSession(event.session);
+                    sessions = true;
+                }
+                return;
+            }
+            synchronized (unsavedLock) {
+                unsavedAnswers.add(event.word, event.time, event.latencyMillis, event.correct);
+                answers = true;
+                if (!event.correct) {
+                    if (unsavedCount == unsavedMistakes.length) {
+                        unsavedMistakes = Arrays.copyOf(unsavedMistakes, unsavedCount * 2);
+                    }
+                    unsavedMistakes[unsavedCount++] = event.word;
+                    mistakes = true;
+                }
+            }
+        }
+
+        @Override
+        public void endOfBatch() {
+            if (answers) {
+                persistence.submit("answers", PracticeEngine.this::writeAnswers);
+            }
+            if (mistakes) {
+                saveProgress();
+            }
+            if (sessions) {
+                // After "progress" so the segment includes this session's mistakes
+                persistence.submit("sync", PracticeEngine.this::exportProgress);
+            }
+            answers = false;
+            mistakes = false;
+            sessions = false;
+        }
+    }
+
+    // Keeps the ranking and the schedule, which only the statistics view
+    // and session building read, after waiting for this consumer
+    private final class StatisticsConsumer implements EventBus.Consumer {
+        @Override
+        public void onEvent(EventBus.Event event) {
+            if (event.type == EventBus.Type.SESSION) {
+                saveSchedule();
+                return;
+            }
+            if (scheduler != null) {
+                scheduler.recordAnswer(event.word, event.correct, event.time);
+            }
+            if (!event.correct && ranking != null) {
+                ranking.remove(event.word);
+                rankedCounts[event.word]++;
+                ranking.insert(event.word);
+            }
+        }
+    }
+
+    // Runs on the persistence thread, which also seals full segments
+    private void writeAnswers() {
+        AnswerHistory batch;
+        synchronized (unsavedLock) {
+            batch = unsavedAnswers;
+            unsavedAnswers = new AnswerHistory();
+        }
+
+        try {
+            answerLog.append(batch);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void startNewSession() {
+        long start = System.nanoTime();
+        currentWordIndex = 0;
+        sessionCorrect = 0;
+        sessionWrong = 0;
+        if (loading) {
+            sessionWords = provisionalSession();
+        } else {
+            int[] next = takePrefetched();
+            sessionWords = next != null ? next : buildSession();
+            if (patterns != null) {
+                patterns.decay();
+            }
+            prefetchNextSession();
+        }
+        wordShownNanos = System.nanoTime();
+        Metrics.INSTANCE.sessionStart.record(wordShownNanos - start);
+    }
+
+    // The prefetched session if it is still what buildSession() would pick
+    private int[] takePrefetched() {
+        CompletableFuture<int[]> future = prefetched;
+        boolean current = scheduler != null
+            ? clock.getAsLong() - prefetchBuiltAt <= PREFETCH_MAX_AGE_MILLIS
+            : prefetchWindowVersion == recentSessions.version() && !prefetchStale;
+        if (future == null || !current) {
+            discardPrefetch();
+            return null;
+        }
+        // Taken as it is, with the new words it introduced
+        prefetchNewWord = -1;
+        discardPrefetch();
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private void prefetchNextSession() {
+        // Spaced sessions are prefetched when the session completes
+        if (prefetchExecutor == null || scheduler != null) {
+            return;
+        }
+
+        // Once this session completes it joins the recency window
+        BitSet excluded = recentSessions.unionAfter(sessionWords);
+        prefetchExcluded = dictionary.size() - excluded.cardinality() >= WORDS_PER_SESSION
+            ? excluded
+            : null;
+        prefetchWindowVersion = recentSessions.version() + 1;
+        int generation = prefetchGeneration.get();
+        Random prefetchRandom = new Random(random.nextLong());
+        PatternIndex.FamilyBoost boost = familyBoost();
+        prefetched = CompletableFuture.supplyAsync(
+            () -> generation == prefetchGeneration.get()
+                ? timedBuild(excluded, boost, prefetchRandom, true)
+                : null,
+            prefetchExecutor);
+    }
+
+    // Builds the next spaced session once the consumers have applied this
+    // one's answers. The scheduler is the prefetch's until the session is
+    // taken or thrown away, so nothing is published before discardPrefetch().
+    private void prefetchScheduledSession() {
+        if (prefetchExecutor == null) {
+            return;
+        }
+        long now = clock.getAsLong();
+        int generation = prefetchGeneration.get();
+        Random prefetchRandom = new Random(random.nextLong());
+        PatternIndex.FamilyBoost boost = familyBoost();
+        // Sessions only change on this thread, and a change discards this first
+        BitSet recent = recentSessions.union();
+        prefetchNewWord = scheduler.newWordPosition();
+        prefetchBuiltAt = now;
+        prefetched = CompletableFuture.supplyAsync(() -> {
+            if (generation != prefetchGeneration.get()) {
+                return null;
+            }
+            events.awaitConsumers();
+            return timedSchedule(now, recent, boost, prefetchRandom, true);
+        }, prefetchExecutor);
+    }
+
+    private void discardPrefetch() {
+        prefetchGeneration.incrementAndGet();
+        CompletableFuture<int[]> pending = prefetched;
+        prefetched = null;
+        prefetchExcluded = null;
+        prefetchStale = false;
+        if (pending != null && prefetchNewWord >= 0) {
+            // Wait for a spaced build to let go of the scheduler, then give
+            // back the new words it introduced
+            pending.exceptionally(e -> null).join();
+            scheduler.rewindNewWords(prefetchNewWord);
+        }
+        prefetchNewWord = -1;
+    }
+
+    int[] buildSession() {
+        if (scheduler != null) {
+            // The schedule is kept by the statistics consumer
+            events.awaitConsumers();
+            return timedSchedule(clock.getAsLong(), recentSessions.union(), familyBoost(), random, false);
+        }
+        // Words used in recent sessions, maintained as sessions complete
+        return timedBuild(recentSessions.union(), familyBoost(), random, false);
+    }
+
+    private int[] timedSchedule(long now, BitSet recentlyUsedWords, PatternIndex.FamilyBoost boost, Random random,
+            boolean prefetched) {
+        PerformanceEvents.SessionBuild event = new PerformanceEvents.SessionBuild();
+        event.begin();
+        long start = System.nanoTime();
+        int[] session = scheduler.nextSession(WORDS_PER_SESSION, now, boost.strongestFirst(), recentlyUsedWords);
+        shuffle(session, random);
+        return recordBuild(event, start, session, prefetched);
+    }
+
+    private PatternIndex.FamilyBoost familyBoost() {
+        return patterns == null ? PatternIndex.FamilyBoost.NONE : patterns.boost();
+    }
+
+    private int[] timedBuild(BitSet recentlyUsedWords, PatternIndex.FamilyBoost boost, Random random,
+            boolean prefetched) {
+        PerformanceEvents.SessionBuild event = new PerformanceEvents.SessionBuild();
+        event.begin();
+        long start = System.nanoTime();
+        return recordBuild(event, start, buildSession(recentlyUsedWords, boost, random), prefetched);
+    }
+
+    private static int[] recordBuild(PerformanceEvents.SessionBuild event, long start, int[] session,
+            boolean prefetched) {
+        Metrics.INSTANCE.sessionBuild.record(System.nanoTime() - start);
+        event.words = session.length;
+        event.prefetched = prefetched;
+        event.commit();
+        return session;
+    }
+
+    // Safe to run off the engine's thread as long as the prefetch is thrown
+    // away when a count it may have read changes
+    private int[] buildSession(BitSet recentlyUsedWords, PatternIndex.FamilyBoost boost, Random random) {
+        int wordCount = dictionary.size();
+
+        // Create pool of available words (avoiding recently used ones)
+        int[] availableWords = new int[wordCount];
+        int available = 0;
+        for (int id = recentlyUsedWords.nextClearBit(0);
+                id < wordCount;
+                id = recentlyUsedWords.nextClearBit(id + 1)) {
+            availableWords[available++] = id;
+        }
+
+        // If not enough words available, add some recently used ones back
+        int free = available;
+        for (int id = recentlyUsedWords.nextSetBit(0);
+                id >= 0 && available < WORDS_PER_SESSION;
+                id = recentlyUsedWords.nextSetBit(id + 1)) {
+            availableWords[available++] = id;
+        }
+        if (available > free) {
+            // Keep the pool in ID order; it is tiny whenever backfilling happens
+            Arrays.sort(availableWords, 0, available);
+        }
+
+        // Select 30 words with weighted selection based on mistake count
+        int[] session = selectWeightedWords(availableWords, available, WORDS_PER_SESSION, random, boost);
+        shuffle(session, random);
+        return session;
+    }
+
+    private static void shuffle(int[] ids, Random random) {
+        for (int i = ids.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = ids[i];
+            ids[i] = ids[j];
+            ids[j] = swap;
+        }
+    }
+
+    int[] selectWeightedWords(int[] pool, int poolSize, int count) {
+        return selectWeightedWords(pool, poolSize, count, random, PatternIndex.FamilyBoost.NONE);
+    }
+
+    private int[] selectWeightedWords(int[] pool, int poolSize, int count, Random random,
+            PatternIndex.FamilyBoost boost) {
+        long[] weights = new long[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            weights[i] = (mistakeCount[pool[i]] + 1) * 2L; // Double weight for mistakes
+        }
+        // Words sharing a pattern with recent mistakes
+        boost.apply(pool, poolSize, weights);
+
+        // Draw without replacement, proportional to weight
+        WeightedSampler sampler = new WeightedSampler(weights);
+        int[] selected = new int[Math.min(count, poolSize)];
+        for (int i = 0; i < selected.length; i++) {
+            selected[i] = pool[sampler.next(random)];
+        }
+
+        return selected;
+    }
+
+    public boolean isSessionComplete() {
+        return currentWordIndex >= sessionWords.length;
+    }
+
+    public String getCurrentWord() {
+        return isSessionComplete() ? null : dictionary.word(sessionWords[currentWordIndex]);
+    }
+
+    public int getCurrentWordIndex() {
+        return currentWordIndex;
+    }
+
+    public void markCorrect() {
+        answer(sessionWords[currentWordIndex], true);
+        sessionCorrect++;
+        currentWordIndex++;
+    }
+
+    public void markWrong() {
+        int id = sessionWords[currentWordIndex];
+        answer(id, false);
+        currentSessionMistakes[sessionWrong] = id;
+        sessionWrong++;
+        currentWordIndex++;
+    }
+
+    private void recordMistake(int id) {
+        mistakeCount[id]++;
+        boolean familyChanged = patterns != null && patterns.recordMistake(id);
+
+        // A prefetched session drawn with the old weight is no longer fair;
+        // words from this session are usually outside its pool anyway, but
+        // its pattern family may not be. Rebuilt once the session completes
+        // rather than on every wrong answer.
+        if (prefetched != null && (prefetchExcluded == null || !prefetchExcluded.get(id) || familyChanged)) {
+            prefetchStale = true;
+        }
+    }
+
+    /**
+     * Records the finished session in the history so the next sessions
+     * avoid its words.
+     */
+    public void completeSession() {
+        if (loading) {
+            // Recorded once loading is done
+            provisionalSessions.add(sessionWords.clone());
+            return;
+        }
+        if (prefetchStale) {
+            // Before the session joins the window, as prefetchNextSession() expects
+            discardPrefetch();
+            prefetchNextSession();
+        }
+        recordSession(sessionWords.clone());
+        if (scheduler != null) {
+            prefetchScheduledSession();
+        }
+    }
+
+    private void recordSession(int[] session) {
+        if (scheduler != null) {
+            discardPrefetch();
+        }
+        saveSessionHistory(session);
+        // The schedule and sync are saved by the consumers
+        events.publishSession(session);
+    }
+
+    public int getSessionCorrect() {
+        return sessionCorrect;
+    }
+
+    public int getSessionWrong() {
+        return sessionWrong;
+    }
+
+    public List<String> getSessionWords() {
+        return wordList(sessionWords, sessionWords.length);
+    }
+
+    public List<String> getSessionMistakes() {
+        return wordList(currentSessionMistakes, sessionWrong);
+    }
+
+    private List<String> wordList(int[] ids, int size) {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                Objects.checkIndex(index, size);
+                return dictionary.word(ids[index]);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    public List<String> getAllWords() {
+        return dictionary.words();
+    }
+
+    public int getMistakeCount(String word) {
+        int id = dictionary.idOf(word);
+        return id >= 0 ? mistakeCount[id] : 0;
+    }
+
+    /**
+     * Every word ranked by mistake count. Built by load() if asked for (see
+     * setRankingAtLoad()), otherwise on first use, and then kept up to date
+     * as mistakes are recorded, in the background: read it on the engine's
+     * thread, between answers.
+     */
+    RankingIndex getRanking() {
+        events.awaitConsumers();
+        if (ranking == null) {
+            buildRanking();
+            updateFootprint();
+        }
+        return ranking;
+    }
+
+    private void buildRanking() {
+        rankedCounts = mistakeCount.clone();
+        ranking = new RankingIndex(dictionary, rankedCounts);
+    }
+
+    /**
+     * Rough size in bytes of the per-word arrays behind selection and
+     * statistics, for Metrics and the profile cache. Safe to read from any
+     * thread: it is worked out on the thread that builds the arrays.
+     */
+    long statisticsFootprintBytes() {
+        return footprintBytes;
+    }
+
+    private void updateFootprint() {
+        long words = dictionary.size();
+        long bytes = 4 * words                   // mistake counts
+            + 4 * words + words / 8;             // recency use counts and union
+        if (ranking != null) {
+            bytes += 6 * 4 * words;              // treap links, sizes, alphabetical order, counts
+        }
+        if (scheduler != null) {
+            bytes += (8 + 4 + 4 + 4 + 4 + 4) * words;  // due, ease, interval, repetitions, heap
+        }
+        if (patterns != null) {
+            bytes += patterns.sizeInBytes();
+        }
+        footprintBytes = bytes;
+    }
+
+    /**
+     * Accuracy per word, pattern and week over every answer in this data
+     * directory that has reached disk. Slow for long histories, so call it
+     * off the event thread.
+     */
+    AnalyticsReport buildReport() {
+        return AnalyticsReport.forDirectories(List.of(dataDirectory), ZoneId.systemDefault());
+    }
+
+    /**
+     * Words with at least one mistake and their counts.
+     */
+    public Map<String, Integer> getMistakeCounts() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int id = 0; id < mistakeCount.length; id++) {
+            if (mistakeCount[id] > 0) {
+                counts.put(dictionary.word(id), mistakeCount[id]);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Flushes pending writes and closes the journal and answer log.
+     */
+    @Override
+    public void close() {
+        if (loadTask != null) {
+            // Answers given while loading are only saved on top of what was
+            // loaded. This may be a shutdown hook rather than the engine's
+            // thread, which the event bus allows for.
+            try {
+                loadTask.join();
+            } catch (CompletionException | CancellationException e) {
+                e.printStackTrace();
+            }
+            finishLoading();
+        }
+        discardPrefetch();
+        events.close();
+        saveProgress();
+        persistence.submit("answers", this::writeAnswers);
+        saveSchedule();
+        if (sync != null) {
+            persistence.submit("sync", this::exportProgress);
+        }
+        persistence.close();
+        try {
+            progressStore.close();
+            answerLog.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        Metrics.INSTANCE.untrack(this);
+    }
+}
@@ -0,0 +1,277 @@
+package spellingpractice;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Headless replay of the session, answer and persistence loop with
+ * synthetic learners, for reproducing scaling problems at realistic
+ * volumes without Swing.
+ *
+ * Every learner gets its own data directory and a random stream derived
+ * from the seed, and the clock advances one day per session, so the same
+ * options always produce the same sessions. The reported session digest
+ * makes that easy to check when comparing selection or persistence
+ * changes.
+ *
+ * Each word has its own difficulty: its chance of being misspelled is the
+ * error rate scaled by an exponentially distributed factor, so mistakes
+ * pile up on a few hard words as they do for real learners.
+ *
+ * The size of the data directory is sampled every so many sessions, once
+ * the pending writes are on disk, to show how it grows over a run. Writes
+ * can go through the usual coalescing background writer or be made
+ * straight away on the thread that asks for them, and sessions can be
+ * prefetched as in the desktop app.
+ */
+public class PracticeSimulator {
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final long START_MILLIS = 1_700_000_000_000L;
+
+    private int vocabularySize = 0;
+    private int learners = 1;
+    private int sessions = 1000;
+    private double errorRate = 0.2;
+    private long seed = 1;
+    private int sessionsToAvoid = PracticeEngine.SESSIONS_TO_AVOID;
+    private PracticeEngine.SelectionMode mode = PracticeEngine.SelectionMode.WEIGHTED_RANDOM;
+    private boolean families;
+    private Path directory;
+    private int diskSampleSessions;
+    private boolean immediateWrites;
+    private boolean prefetch;
+
+    /**
+     * Usage: PracticeSimulator [--words N] [--learners N] [--sessions N]
+     *                          [--error-rate RATE] [--seed N] [--avoid SESSIONS]
+     *                          [--mode spaced|weighted] [--families true|false] [--dir DIRECTORY]
+     *                          [--disk-every SESSIONS] [--writes coalesced|immediate]
+     *                          [--prefetch true|false]
+     * Without --words the built-in word list is used; without --dir the
+     * data goes to a temporary directory that is deleted afterwards.
+     * Without --disk-every the disk is sampled ten times over the run.
+     */
+    public static void main(String[] args) throws IOException {
+        PracticeSimulator simulator = new PracticeSimulator();
+        if (args.length % 2 != 0) {
+            throw new IllegalArgumentException("Missing value for option " + args[args.length - 1]);
+        }
+        for (int i = 0; i < args.length; i += 2) {
+            switch (args[i]) {
+                case "--words": simulator.vocabularySize = Integer.parseInt(args[i + 1]); break;
+                case "--learners": simulator.learners = Integer.parseInt(args[i + 1]); break;
+                case "--sessions": simulator.sessions = Integer.parseInt(args[i + 1]); break;
+                case "--error-rate": simulator.errorRate = Double.parseDouble(args[i + 1]); break;
+                case "--seed": simulator.seed = Long.parseLong(args[i + 1]); break;
+                case "--avoid": simulator.sessionsToAvoid = Integer.parseInt(args[i + 1]); break;
+                case "--mode": simulator.mode = PracticeEngine.SelectionMode.fromName(args[i + 1]); break;
+                case "--families": simulator.families = Boolean.parseBoolean(args[i + 1]); break;
+                case "--dir": simulator.directory = Paths.get(args[i + 1]); break;
+                case "--disk-every": simulator.diskSampleSessions = Integer.parseInt(args[i + 1]); break;
+                case "--writes": simulator.immediateWrites = writeStrategy(args[i + 1]); break;
+                case "--prefetch": simulator.prefetch = Boolean.parseBoolean(args[i + 1]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        simulator.run();
+    }
+
+    private static boolean writeStrategy(String name) {
+        switch (name) {
+            case "coalesced": return false;
+            case "immediate": return true;
+            default: throw new IllegalArgumentException("Unknown write strategy " + name);
+        }
+    }
+
+    private void run() throws IOException {
+        WordDictionary dictionary = vocabularySize > 0
+            ? syntheticVocabulary(vocabularySize)
+            : WordListLoader.loadDefault();
+        boolean temporary = directory == null;
+        Path root = temporary ? Files.createTempDirectory("spelling-sim") : directory;
+
+        // One persistence thread and one event thread for the whole run, so
+        // their allocations can be counted too
+        Thread[] writerThread = new Thread[1];
+        ExecutorService writes = Executors.newSingleThreadExecutor(runnable -> {
+            writerThread[0] = new Thread(runnable, "simulator-persistence");
+            writerThread[0].setDaemon(true);
+            return writerThread[0];
+        });
+        CompletableFuture.runAsync(() -> { }, writes).join();
+        Thread[] eventThread = new Thread[1];
+        ExecutorService events = Executors.newSingleThreadExecutor(runnable -> {
+            eventThread[0] = new Thread(runnable, "simulator-events");
+            eventThread[0].setDaemon(true);
+            return eventThread[0];
+        });
+        CompletableFuture.runAsync(() -> { }, events).join();
+        Thread[] prefetchThread = new Thread[1];
+        ExecutorService prefetches = Executors.newSingleThreadExecutor(runnable -> {
+            prefetchThread[0] = new Thread(runnable, "simulator-prefetch");
+            prefetchThread[0].setDaemon(true);
+            return prefetchThread[0];
+        });
+        CompletableFuture.runAsync(() -> { }, prefetches).join();
+        // Immediate writes run on whichever thread submits them: the event
+        // thread, or this one when an engine closes
+        Executor writeExecutor = immediateWrites ? Runnable::run : writes;
+        int sampleEvery = diskSampleSessions > 0
+            ? diskSampleSessions
+            : Math.max(1, learners * sessions / 10);
+
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] threadIds = {Thread.currentThread().getId(), writerThread[0].getId(), eventThread[0].getId(),
+            prefetchThread[0].getId()};
+        long allocatedBefore = sum(threads.getThreadAllocatedBytes(threadIds));
+        long start = System.nanoTime();
+
+        long answers = 0;
+        long mistakes = 0;
+        long sessionsDone = 0;
+        List<long[]> diskSamples = new ArrayList<>();
+        CRC32 digest = new CRC32();
+        for (int learner = 0; learner < learners; learner++) {
+            Random random = new Random(seed * 1_000_003 + learner);
+            double[] mistakeChance = mistakeChances(dictionary.size(), random);
+            long[] clock = {START_MILLIS};
+
+            Path learnerDirectory = Files.createDirectories(root.resolve("learner-" + learner));
+            PracticeEngine engine = new PracticeEngine(dictionary, learnerDirectory,
+                new Random(random.nextLong()), new PersistenceWriter(writeExecutor), new EventBus(events));
+            engine.setSessionsToAvoid(sessionsToAvoid);
+            engine.setSelectionMode(mode);
+            engine.setFamilyBoost(families);
+            engine.setClock(() -> clock[0]);
+            if (prefetch) {
+                engine.setSessionPrefetch(prefetches);
+            }
+            engine.load();
+
+            for (int s = 0; s < sessions; s++) {
+                engine.startNewSession();
+                while (!engine.isSessionComplete()) {
+                    int id = dictionary.idOf(engine.getCurrentWord());
+                    digest.update(id >>> 24);
+                    digest.update(id >>> 16);
+                    digest.update(id >>> 8);
+                    digest.update(id);
+                    if (random.nextDouble() < mistakeChance[id]) {
+                        engine.markWrong();
+                        mistakes++;
+                    } else {
+                        engine.markCorrect();
+                    }
+                    answers++;
+                }
+                // The next session is prefetched as of tomorrow, when it is taken
+                clock[0] += DAY_MILLIS;
+                engine.completeSession();
+
+                if (++sessionsDone % sampleEvery == 0) {
+                    settle(events, writes);
+                    diskSamples.add(new long[] {sessionsDone, directorySize(root)});
+                }
+            }
+            engine.close();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long allocated = sum(threads.getThreadAllocatedBytes(threadIds)) - allocatedBefore;
+        prefetches.shutdown();
+        events.shutdown();
+        writes.shutdown();
+
+        System.out.printf(Locale.ROOT,
+            "learners=%d sessions=%d words=%d mode=%s families=%b seed=%d writes=%s prefetch=%b%n",
+            learners, sessions, dictionary.size(), mode, families, seed,
+            immediateWrites ? "immediate" : "coalesced", prefetch);
+        System.out.printf(Locale.ROOT, "answers=%d mistakes=%d seconds=%.3f answersPerSecond=%.0f%n",
+            answers, mistakes, seconds, answers / seconds);
+        System.out.printf(Locale.ROOT, "allocatedBytes=%d allocationRateMBPerSecond=%.1f bytesPerAnswer=%.0f%n",
+            allocated, allocated / seconds / (1 << 20), allocated / (double) Math.max(1, answers));
+        System.out.printf("sessionDigest=%08x%n", digest.getValue());
+        for (long[] sample : diskSamples) {
+            System.out.println("diskSample sessions=" + sample[0] + " bytes=" + sample[1]);
+        }
+        printDiskUsage(root);
+        System.out.println(Metrics.INSTANCE.describe());
+
+        if (temporary) {
+            delete(root);
+        }
+    }
+
+    private static long sum(long[] values) {
+        long total = 0;
+        for (long value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    private double[] mistakeChances(int words, Random random) {
+        double[] chances = new double[words];
+        for (int id = 0; id < words; id++) {
+            double difficulty = -Math.log(1 - random.nextDouble());
+            chances[id] = Math.min(1, errorRate * difficulty);
+        }
+        return chances;
+    }
+
+    private static WordDictionary syntheticVocabulary(int size) {
+        WordDictionary.Builder builder = new WordDictionary.Builder();
+        for (int i = 0; i < size; i++) {
+            builder.add("w" + Integer.toString(i, 36));
+        }
+        return builder.build();
+    }
+
+    // Waits for the events published so far and the writes they queued;
+    // each executor runs its tasks in order
+    private static void settle(Executor events, Executor writes) {
+        CompletableFuture.runAsync(() -> { }, events).join();
+        CompletableFuture.runAsync(() -> { }, writes).join();
+    }
+
+    private static long directorySize(Path root) throws IOException {
+        long total = 0;
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                total += Files.size(file);
+            }
+        }
+        return total;
+    }
+
+    // Total size of each data file across all learners
+    private static void printDiskUsage(Path root) throws IOException {
+        Map<String, Long> sizes = new TreeMap<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                sizes.merge(file.getFileName().toString(), Files.size(file), Long::sum);
+            }
+        }
+        long total = 0;
+        for (Map.Entry<String, Long> entry : sizes.entrySet()) {
+            System.out.println("disk " + entry.getKey() + "=" + entry.getValue());
+            total += entry.getValue();
+        }
+        System.out.println("diskTotalBytes=" + total);
+    }
+
+    private static void delete(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package spellingpractice;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Learner profiles for a shared install. Each profile is a data directory
+ * under profiles/, except the default one, which keeps using the working
+ * directory so data from before profiles existed carries on as is.
+ *
+ * A profile's engine is loaded the first time it is opened and then kept
+ * in an LRU cache, so switching back and forth between learners costs
+ * nothing. Profiles that have not been used for a while are closed, which
+ * writes back anything pending, once more than MAX_RESIDENT are open or
+ * their per-word arrays together pass the memory budget. The profile in use
+ * is never evicted, and neither is one still loading in the background.
+ * Evicted profiles are closed on the loader thread, so the caller never
+ * waits for the disk; opening one again waits for it to be closed, and a
+ * background open simply loads after the close on that same thread.
+ *
+ * Profile names are compared ignoring case, since the directories would
+ * collide on case-insensitive filesystems. A name that matches an existing
+ * profile's directory opens that profile under the directory's spelling.
+ *
+ * All profiles share one persistence, event, prefetch and loader thread, and
+ * all of them boost the pattern families of recent mistakes and build their
+ * statistics ranking while loading, off the event thread.
+ */
+final class ProfileManager implements Closeable {
+    static final String DEFAULT_PROFILE = "Default";
+    static final String PROFILES_DIRECTORY = "profiles";
+    static final int MAX_RESIDENT = 8;
+    static final long MEMORY_BUDGET_BYTES = 64L << 20;
+
+    private static final Pattern PROFILE_NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9 _-]{0,63}");
+
+    private final Path root;
+    private final WordDictionary dictionary;
+    private final int sessionsToAvoid;
+    private final PracticeEngine.SelectionMode mode;
+    private final Path syncRoot;
+    private final ExecutorService persistenceExecutor;
+    private final ExecutorService eventExecutor;
+    private final ExecutorService prefetchExecutor;
+    private final ExecutorService loaderExecutor;
+    // Access order, least recently opened first
+    private final LinkedHashMap<String, PracticeEngine> resident = new LinkedHashMap<>(16, 0.75f, true);
+    // Evicted profiles still being closed, emptied from the loader thread
+    private final Map<String, CompletableFuture<Void>> closing = new ConcurrentHashMap<>();
+    private String active;
+    private boolean closed;
+
+    /**
+     * With a sync root, each profile merges its progress with other
+     * machines through the folder of the same name under it.
+     */
+    ProfileManager(Path root, WordDictionary dictionary, int sessionsToAvoid, PracticeEngine.SelectionMode mode,
+            Path syncRoot) {
+        this.root = root;
+        this.syncRoot = syncRoot;
+        this.dictionary = dictionary;
+        this.sessionsToAvoid = sessionsToAvoid;
+        this.mode = mode;
+        this.persistenceExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "persistence-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.eventExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "engine-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.prefetchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.loaderExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "profile-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    static boolean isValidName(String name) {
+        return PROFILE_NAME.matcher(name).matches();
+    }
+
+    /**
+     * Every profile on disk, the default one first.
+     */
+    List<String> profiles() throws IOException {
+        return profiles(root);
+    }
+
+    static List<String> profiles(Path root) throws IOException {
+        List<String> names = new ArrayList<>();
+        Path directory = root.resolve(PROFILES_DIRECTORY);
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> entries = Files.list(directory)) {
+                entries.filter(Files::isDirectory)
+                    .map(path -> path.getFileName().toString())
+                    .filter(ProfileManager::isValidName)
+                    .filter(name -> !name.equalsIgnoreCase(DEFAULT_PROFILE))
+                    .sorted(String.CASE_INSENSITIVE_ORDER)
+                    .forEach(names::add);
+            }
+        }
+        names.add(0, DEFAULT_PROFILE);
+        return names;
+    }
+
+    static Path directory(Path root, String name) {
+        return name.equals(DEFAULT_PROFILE) ? root : root.resolve(PROFILES_DIRECTORY).resolve(name);
+    }
+
+    // The spelling already in use for a name, from the open profiles or the disk
+    private String canonicalName(String name) throws IOException {
+        if (name.equalsIgnoreCase(DEFAULT_PROFILE)) {
+            return DEFAULT_PROFILE;
+        }
+        for (String open : resident.keySet()) {
+            if (open.equalsIgnoreCase(name)) {
+                return open;
+            }
+        }
+        for (String existing : profiles(root)) {
+            if (existing.equalsIgnoreCase(name)) {
+                return existing;
+            }
+        }
+        return name;
+    }
+
+    /**
+     * The data directory of every profile on disk, the default one first.
+     */
+    static List<Path> dataDirectories(Path root) throws IOException {
+        List<Path> directories = new ArrayList<>();
+        for (String name : profiles(root)) {
+            directories.add(directory(root, name));
+        }
+        return directories;
+    }
+
+    /**
+     * Makes the profile the active one, creating it if needed, and returns
+     * its engine.
+     */
+    synchronized PracticeEngine open(String name) throws IOException {
+        return open(name, null);
+    }
+
+    /**
+     * Like open(), but a profile that is not open yet loads in the
+     * background and finishes on the given engine thread (see
+     * PracticeEngine.loadInBackground), so its first session can start at
+     * once, without waiting for an earlier engine of it to close. Check
+     * PracticeEngine.whenLoaded() for a failed load.
+     */
+    synchronized PracticeEngine openInBackground(String name, Executor engineThread) throws IOException {
+        return open(name, engineThread);
+    }
+
+    private PracticeEngine open(String name, Executor engineThread) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Profiles are closed");
+        }
+        if (!isValidName(name)) {
+            throw new IllegalArgumentException("Invalid profile name: " + name);
+        }
+        name = canonicalName(name);
+
+        PracticeEngine engine = resident.get(name);
+        if (engine == null) {
+            if (engineThread == null) {
+                awaitClosed(name);
+            }
+            // Otherwise the load is queued on the loader thread behind the close
+            Path directory = name.equals(DEFAULT_PROFILE)
+                ? root
+                : Files.createDirectories(directory(root, name));
+            engine = new PracticeEngine(dictionary, directory, new Random(),
+                new PersistenceWriter(persistenceExecutor), new EventBus(eventExecutor));
+            engine.setSessionsToAvoid(sessionsToAvoid);
+            engine.setSelectionMode(mode);
+            engine.setSessionPrefetch(prefetchExecutor);
+            engine.setFamilyBoost(true);
+            engine.setRankingAtLoad(true);
+            if (syncRoot != null) {
+                engine.setSyncDirectory(syncRoot.resolve(name));
+            }
+            if (engineThread != null) {
+                engine.loadInBackground(loaderExecutor, engineThread);
+            } else {
+                boolean loaded;
+                try {
+                    loaded = engine.load();
+                } catch (UncheckedIOException e) {
+                    engine.close();
+                    throw e.getCause();
+                }
+                if (!loaded) {
+                    engine.close();
+                    throw new IOException("No words to practice");
+                }
+            }
+            resident.put(name, engine);
+        }
+        active = name;
+        evict();
+        return engine;
+    }
+
+    synchronized String active() {
+        return active;
+    }
+
+    // Closes least recently used profiles until the cache is within its limits
+    private void evict() {
+        long footprint = 0;
+        for (PracticeEngine engine : resident.values()) {
+            if (!engine.isLoading()) {
+                footprint += engine.statisticsFootprintBytes();
+            }
+        }
+
+        Iterator<Map.Entry<String, PracticeEngine>> eldest = resident.entrySet().iterator();
+        while ((resident.size() > MAX_RESIDENT || footprint > MEMORY_BUDGET_BYTES) && eldest.hasNext()) {
+            Map.Entry<String, PracticeEngine> entry = eldest.next();
+            if (entry.getKey().equals(active) || entry.getValue().isLoading()) {
+                continue;
+            }
+            PracticeEngine engine = entry.getValue();
+            footprint -= engine.statisticsFootprintBytes();
+            eldest.remove();
+            // Writes back pending progress, history and schedule
+            String name = entry.getKey();
+            CompletableFuture<Void> closed = CompletableFuture.runAsync(engine::close, loaderExecutor);
+            closing.put(name, closed);
+            closed.whenComplete((result, error) -> closing.remove(name, closed));
+        }
+    }
+
+    // The profile's files are only opened again once its old engine let go of them
+    private void awaitClosed(String name) {
+        CompletableFuture<Void> closed = closing.get(name);
+        if (closed != null) {
+            try {
+                closed.join();
+            } catch (CompletionException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Closes every open profile and stops the background threads.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (PracticeEngine engine : resident.values()) {
+            engine.close();
+        }
+        resident.clear();
+        for (String name : new ArrayList<>(closing.keySet())) {
+            awaitClosed(name);
+        }
+        eventExecutor.shutdown();
+        persistenceExecutor.shutdown();
+        prefetchExecutor.shutdown();
+        loaderExecutor.shutdown();
+    }
+}
@@ -0,0 +1,334 @@
+package spellingpractice;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Mistake counts stored as a binary snapshot plus an append-only journal.
+ *
+ * Each mistake appends one record to the journal; fsync is batched so a crash
+ * loses at most the last SYNC_EVERY records. Once the journal grows past
+ * COMPACT_AFTER records it is folded into a fresh snapshot, whether while
+ * running or when loading; otherwise a load leaves both files as they are
+ * and carries on appending to the journal. Both files carry
+ * a generation number so a journal that was already folded in is never
+ * replayed twice.
+ *
+ * Snapshot payload: generation, then (word, count) pairs, all varints and
+ * length-prefixed UTF-8 (see BinaryFormat). Journal: a checksummed header
+ * holding the generation, then one record per mistake, each a word followed
+ * by a CRC32 of the record, so a torn or damaged tail is detected and cut off.
+ *
+ * The text files written by earlier versions are migrated on first load and
+ * kept with a .bak suffix.
+ */
+class ProgressStore implements Closeable {
+    static final String SNAPSHOT_FILE = "spelling_progress.bin";
+    static final String JOURNAL_FILE = "spelling_progress.journal.bin";
+    static final String LEGACY_SNAPSHOT_FILE = "spelling_progress.txt";
+    static final String LEGACY_JOURNAL_FILE = "spelling_progress.journal";
+
+    private static final String SNAPSHOT_MAGIC = "SPPS";
+    private static final String JOURNAL_MAGIC = "SPPJ";
+    private static final int VERSION = 1;
+    private static final String LEGACY_GENERATION_PREFIX = "#generation ";
+    private static final int SYNC_EVERY = 16;
+    private static final int COMPACT_AFTER = 1000;
+
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private final Path legacySnapshotFile;
+    private final Path legacyJournalFile;
+    private final WordDictionary dictionary;
+    private final int[] counts;
+    // Words no longer in the dictionary keep their counts until the list brings them back
+    private final Map<String, Integer> otherWords = new HashMap<>();
+    private FileChannel journal;
+    private long generation;
+    private int journalRecords;
+    private int unsynced;
+
+    ProgressStore(Path directory, WordDictionary dictionary) {
+        this.snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        this.journalFile = directory.resolve(JOURNAL_FILE);
+        this.legacySnapshotFile = directory.resolve(LEGACY_SNAPSHOT_FILE);
+        this.legacyJournalFile = directory.resolve(LEGACY_JOURNAL_FILE);
+        this.dictionary = dictionary;
+        this.counts = new int[dictionary.size()];
+    }
+
+    /**
+     * Rebuilds the counts from snapshot plus journal and opens the journal
+     * for appending. A new snapshot is only written when there is none yet,
+     * when migrating, when the journal is long enough to compact, or when
+     * the journal is missing, stale or damaged; a torn last record is just
+     * cut off.
+     *
+     * A snapshot that fails its checksum is moved aside and loading starts
+     * from empty, rather than half-reading it.
+     */
+    void load() throws IOException {
+        close();
+        Arrays.fill(counts, 0);
+        otherWords.clear();
+        generation = 0;
+
+        boolean journalUsable = false;
+        boolean migrating = !Files.exists(snapshotFile)
+            && (Files.exists(legacySnapshotFile) || Files.exists(legacyJournalFile));
+        if (migrating) {
+            loadLegacy();
+        } else if (Files.exists(snapshotFile)) {
+            try {
+                loadSnapshot();
+                int replayed = replayJournal();
+                if (replayed >= 0 && replayed < COMPACT_AFTER) {
+                    journalRecords = replayed;
+                    unsynced = 0;
+                    journalUsable = true;
+                }
+            } catch (BinaryFormat.CorruptFileException e) {
+                Path kept = BinaryFormat.quarantine(snapshotFile);
+                System.err.println("Progress snapshot is corrupt, moved to " + kept + ": " + e.getMessage());
+                Arrays.fill(counts, 0);
+                otherWords.clear();
+            }
+        }
+
+        if (journalUsable) {
+            openJournal();
+        } else {
+            compact();
+        }
+
+        if (migrating) {
+            backUp(legacySnapshotFile);
+            backUp(legacyJournalFile);
+        }
+    }
+
+    private void loadSnapshot() throws IOException {
+        BinaryFormat.Reader reader = BinaryFormat.readFile(snapshotFile, SNAPSHOT_MAGIC, VERSION);
+        generation = reader.getVarint();
+        int entries = reader.getCount();
+        for (int i = 0; i < entries; i++) {
+            String word = reader.getString();
+            add(word, (int) reader.getVarint());
+        }
+    }
+
+    // Records replayed, or -1 if the journal has to be started afresh
+    private int replayJournal() throws IOException {
+        if (!Files.exists(journalFile)) {
+            return -1;
+        }
+
+        byte[] data = Files.readAllBytes(journalFile);
+        BinaryFormat.Reader reader = new BinaryFormat.Reader(journalFile, data, 0, data.length);
+        try {
+            byte[] magic = new byte[JOURNAL_MAGIC.length()];
+            for (int i = 0; i < magic.length; i++) {
+                magic[i] = (byte) reader.getByte();
+            }
+            if (!JOURNAL_MAGIC.equals(new String(magic, StandardCharsets.US_ASCII)) || reader.getByte() != VERSION) {
+                throw new BinaryFormat.CorruptFileException(journalFile, "not a journal file");
+            }
+            long journalGeneration = reader.getVarint();
+            if (!reader.checkCrc(0)) {
+                throw new BinaryFormat.CorruptFileException(journalFile, "header checksum mismatch");
+            }
+            if (journalGeneration < generation) {
+                // Already folded into the snapshot before the last crash
+                return -1;
+            }
+        } catch (BinaryFormat.CorruptFileException e) {
+            Path kept = BinaryFormat.quarantine(journalFile);
+            System.err.println("Progress journal is corrupt, moved to " + kept + ": " + e.getMessage());
+            return -1;
+        }
+
+        int records = 0;
+        int recordStart = reader.position();
+        try {
+            while (reader.hasRemaining()) {
+                recordStart = reader.position();
+                String word = reader.getString();
+                if (!reader.checkCrc(recordStart)) {
+                    break;
+                }
+                add(word, 1);
+                records++;
+                recordStart = reader.position();
+            }
+        } catch (BinaryFormat.CorruptFileException e) {
+            // Torn final record from a crash
+        }
+        if (recordStart < data.length) {
+            System.err.println("Dropped " + (data.length - recordStart)
+                + " unreadable bytes at the end of " + journalFile);
+            // New records must follow the last good one to be read back
+            try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+                channel.truncate(recordStart);
+                channel.force(true);
+            }
+        }
+        return records;
+    }
+
+    // Text format written before the binary files existed
+    private void loadLegacy() throws IOException {
+        long legacyGeneration = 0;
+        if (Files.exists(legacySnapshotFile)) {
+            for (String line : Files.readAllLines(legacySnapshotFile, StandardCharsets.UTF_8)) {
+                if (line.startsWith(LEGACY_GENERATION_PREFIX)) {
+                    legacyGeneration = Long.parseLong(line.substring(LEGACY_GENERATION_PREFIX.length()).trim());
+                    continue;
+                }
+                String[] parts = line.split(":");
+                if (parts.length == 2) {
+                    add(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+                }
+            }
+        }
+
+        if (!Files.exists(legacyJournalFile)) {
+            return;
+        }
+        String content = new String(Files.readAllBytes(legacyJournalFile), StandardCharsets.UTF_8);
+        int end = content.lastIndexOf('\n');
+        if (end < 0) {
+            return;
+        }
+        String[] lines = content.substring(0, end).split("\n");
+        int start = 0;
+        long journalGeneration = 0;
+        if (lines.length > 0 && lines[0].startsWith(LEGACY_GENERATION_PREFIX)) {
+            journalGeneration = Long.parseLong(lines[0].substring(LEGACY_GENERATION_PREFIX.length()).trim());
+            start = 1;
+        }
+        if (journalGeneration < legacyGeneration) {
+            return;
+        }
+        for (int i = start; i < lines.length; i++) {
+            if (!lines[i].isEmpty()) {
+                add(lines[i], 1);
+            }
+        }
+    }
+
+    private static void backUp(Path file) throws IOException {
+        if (Files.exists(file)) {
+            Files.move(file, file.resolveSibling(file.getFileName() + ".bak"),
+                StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void add(String word, int count) {
+        int id = dictionary.idOf(word);
+        if (id >= 0) {
+            counts[id] += count;
+        } else {
+            otherWords.merge(word, count, Integer::sum);
+        }
+    }
+
+    /**
+     * Mistake counts indexed by dictionary ID.
+     */
+    int[] copyCounts() {
+        return counts.clone();
+    }
+
+    int count(int id) {
+        return counts[id];
+    }
+
+    void recordMistake(int id) throws IOException {
+        counts[id]++;
+
+        BinaryFormat.Writer record = new BinaryFormat.Writer();
+        record.putString(dictionary.word(id));
+        record.putCrc(0);
+        ByteBuffer buffer = ByteBuffer.wrap(record.toByteArray());
+        while (buffer.hasRemaining()) {
+            journal.write(buffer);
+        }
+        journalRecords++;
+        unsynced++;
+
+        if (journalRecords >= COMPACT_AFTER) {
+            compact();
+        } else if (unsynced >= SYNC_EVERY) {
+            sync();
+        }
+    }
+
+    void sync() throws IOException {
+        if (journal != null && unsynced > 0) {
+            journal.force(false);
+            unsynced = 0;
+        }
+    }
+
+    /**
+     * Writes the current counts as a new snapshot generation and starts an
+     * empty journal for it.
+     */
+    void compact() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+        generation++;
+
+        BinaryFormat.Writer snapshot = new BinaryFormat.Writer(SNAPSHOT_MAGIC, VERSION);
+        snapshot.putVarint(generation);
+        int entries = otherWords.size();
+        for (int count : counts) {
+            if (count > 0) {
+                entries++;
+            }
+        }
+        snapshot.putVarint(entries);
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] > 0) {
+                snapshot.putString(dictionary.word(id));
+                snapshot.putVarint(counts[id]);
+            }
+        }
+        for (Map.Entry<String, Integer> entry : otherWords.entrySet()) {
+            snapshot.putString(entry.getKey());
+            snapshot.putVarint(entry.getValue());
+        }
+        BinaryFormat.writeFile(snapshotFile, snapshot);
+
+        BinaryFormat.Writer header = new BinaryFormat.Writer(JOURNAL_MAGIC, VERSION);
+        header.putVarint(generation);
+        header.putCrc(0);
+        BinaryFormat.writeAtomically(journalFile, header.toByteArray());
+
+        journalRecords = 0;
+        unsynced = 0;
+        openJournal();
+    }
+
+    private void openJournal() throws IOException {
+        journal = FileChannel.open(journalFile,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (journal != null) {
+            sync();
+            journal.close();
+            journal = null;
+        }
+    }
+}
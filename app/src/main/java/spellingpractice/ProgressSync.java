@@ -0,0 +1,419 @@
+package spellingpractice;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Merges progress between machines through a shared or synced folder
+ * without ever overwriting another machine's counts.
+ *
+ * Every device has its own ID and only ever adds files to its own
+ * directory in the sync folder, one numbered segment per export:
+ * <pre>
+ *   sync folder/devices/DEVICE_ID/segment-0.bin, segment-1.bin, ...
+ * </pre>
+ * A segment holds the mistakes made on that device since its previous
+ * segment (word, count added) and the sessions completed there. Mistake
+ * counts are thus a grow-only counter per device, and the total for a word
+ * is the sum over devices, so merging in any order gives the same result
+ * and no device can lose another's mistakes.
+ *
+ * The local state file remembers, per device, the next segment to read, so
+ * a merge only opens segments it has not seen and its cost follows new
+ * activity rather than total history. It also keeps the sum of all other
+ * devices' counts. It is only a cache: if it is lost, everything is read
+ * again from the sync folder.
+ *
+ * An export only looks at the words with mistakes since the previous one,
+ * so its cost also follows new activity rather than the vocabulary size.
+ *
+ * Every ROLLUP_EVERY segments a device also writes a rollup, rollup-N.bin,
+ * in the segment format: its total counts over segments 0 to N - 1 and the
+ * last few sessions it exported since it started. A device that has not
+ * read anything of another one yet, such as a new machine or one that lost
+ * its state, starts from that device's latest rollup instead of reading
+ * its whole history. Old segments are kept, so devices part way through
+ * can carry on reading where they are.
+ *
+ * A segment or rollup that fails its checksum, for instance one a sync
+ * tool has only partly copied so far, is left alone and read on a later
+ * merge; an earlier rollup, or the segments, are read in its place.
+ *
+ * Other devices' segments are only read by importNew(), which the engine
+ * calls when it loads: activity elsewhere shows up the next time the app
+ * starts or the profile is opened again, not while it is in use.
+ *
+ * Each data directory is one device. Copying a data directory to another
+ * machine copies its device ID too, so point both machines at the sync
+ * folder instead.
+ */
+final class ProgressSync {
+    static final String STATE_FILE = "spelling_sync.bin";
+    static final String DEVICE_ID_FILE = "spelling_device.id";
+    static final String DEVICES_DIRECTORY = "devices";
+    static final int ROLLUP_EVERY = 64;
+    // Enough for any sensible recency window
+    static final int ROLLUP_SESSIONS = 16;
+
+    private static final String STATE_MAGIC = "SPSY";
+    private static final String SEGMENT_MAGIC = "SPSG";
+    private static final String ROLLUP_MAGIC = "SPRU";
+    private static final int VERSION = 1;
+
+    private final Path syncDirectory;
+    private final Path stateFile;
+    private final Path deviceIdFile;
+    private final WordDictionary dictionary;
+    private String deviceId;
+
+    // Local mistakes already written to segments of this device
+    private final int[] exported;
+    // Mistakes from every other device, by ID, and for words not in the dictionary
+    private final int[] remote;
+    private final Map<String, Integer> remoteOther = new HashMap<>();
+    // Next segment to read per device, this one included
+    private final Map<String, Long> cursors = new HashMap<>();
+
+    // Completed sessions waiting for the next export, and the last ones
+    // exported, for the next rollup
+    private final List<int[]> unexportedSessions = new ArrayList<>();
+    private final ArrayDeque<int[]> exportedSessions = new ArrayDeque<>();
+    // Words with local mistakes since the last export, all of them until the
+    // first export has compared every count
+    private final BitSet changed = new BitSet();
+    private boolean comparedAll;
+
+    ProgressSync(Path dataDirectory, Path syncDirectory, WordDictionary dictionary) {
+        this.syncDirectory = syncDirectory;
+        this.stateFile = dataDirectory.resolve(STATE_FILE);
+        this.deviceIdFile = dataDirectory.resolve(DEVICE_ID_FILE);
+        this.dictionary = dictionary;
+        this.exported = new int[dictionary.size()];
+        this.remote = new int[dictionary.size()];
+    }
+
+    /**
+     * Reads the device ID and local state, creating them on first use.
+     */
+    void load() throws IOException {
+        if (Files.exists(deviceIdFile)) {
+            deviceId = new String(Files.readAllBytes(deviceIdFile), StandardCharsets.UTF_8).trim();
+        } else {
+            deviceId = UUID.randomUUID().toString();
+            BinaryFormat.writeAtomically(deviceIdFile, deviceId.getBytes(StandardCharsets.UTF_8));
+        }
+
+        if (!Files.exists(stateFile)) {
+            return;
+        }
+        try {
+            loadState();
+        } catch (BinaryFormat.CorruptFileException e) {
+            Path kept = BinaryFormat.quarantine(stateFile);
+            System.err.println("Sync state is corrupt, moved to " + kept
+                + "; rebuilding it from the sync folder: " + e.getMessage());
+            Arrays.fill(exported, 0);
+            Arrays.fill(remote, 0);
+            remoteOther.clear();
+            cursors.clear();
+        }
+    }
+
+    private void loadState() throws IOException {
+        BinaryFormat.Reader reader = BinaryFormat.readFile(stateFile, STATE_MAGIC, VERSION);
+        int devices = reader.getCount();
+        for (int i = 0; i < devices; i++) {
+            cursors.put(reader.getString(), reader.getVarint());
+        }
+        int exportedEntries = reader.getCount();
+        for (int i = 0; i < exportedEntries; i++) {
+            int id = dictionary.idOf(reader.getString());
+            int count = (int) reader.getVarint();
+            if (id >= 0) {
+                exported[id] += count;
+            }
+        }
+        int remoteEntries = reader.getCount();
+        for (int i = 0; i < remoteEntries; i++) {
+            addRemote(reader.getString(), (int) reader.getVarint());
+        }
+    }
+
+    private void saveState() throws IOException {
+        BinaryFormat.Writer writer = new BinaryFormat.Writer(STATE_MAGIC, VERSION);
+        writer.putVarint(cursors.size());
+        for (Map.Entry<String, Long> cursor : cursors.entrySet()) {
+            writer.putString(cursor.getKey());
+            writer.putVarint(cursor.getValue());
+        }
+        putCounts(writer, exported, Collections.emptyMap());
+        putCounts(writer, remote, remoteOther);
+        BinaryFormat.writeFile(stateFile, writer);
+    }
+
+    private void putCounts(BinaryFormat.Writer writer, int[] counts, Map<String, Integer> other) {
+        int entries = other.size();
+        for (int count : counts) {
+            if (count > 0) {
+                entries++;
+            }
+        }
+        writer.putVarint(entries);
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] > 0) {
+                writer.putString(dictionary.word(id));
+                writer.putVarint(counts[id]);
+            }
+        }
+        for (Map.Entry<String, Integer> entry : other.entrySet()) {
+            writer.putString(entry.getKey());
+            writer.putVarint(entry.getValue());
+        }
+    }
+
+    private void addRemote(String word, int count) {
+        int id = dictionary.idOf(word);
+        if (id >= 0) {
+            remote[id] += count;
+        } else {
+            remoteOther.merge(word, count, Integer::sum);
+        }
+    }
+
+    /**
+     * Mistakes made on other devices, by dictionary ID.
+     */
+    int[] remoteCounts() {
+        return remote;
+    }
+
+    /**
+     * Reads every segment not seen yet. Returns the sessions completed on
+     * other devices that they contain, oldest segment first per device.
+     */
+    List<int[]> importNew() throws IOException {
+        List<int[]> sessions = new ArrayList<>();
+        Path devicesDirectory = syncDirectory.resolve(DEVICES_DIRECTORY);
+        if (!Files.isDirectory(devicesDirectory)) {
+            return sessions;
+        }
+
+        List<Path> devices;
+        try (Stream<Path> entries = Files.list(devicesDirectory)) {
+            devices = entries.filter(Files::isDirectory).sorted().collect(Collectors.toList());
+        }
+        boolean changed = false;
+        for (Path device : devices) {
+            String id = device.getFileName().toString();
+            boolean own = id.equals(deviceId);
+            long next = cursors.getOrDefault(id, 0L);
+            if (next == 0) {
+                next = readLatestRollup(device, own, sessions);
+                changed |= next > 0;
+            }
+            while (true) {
+                Path segment = device.resolve(segmentName(next));
+                if (!Files.exists(segment)) {
+                    break;
+                }
+                try {
+                    readSegment(segment, own, sessions);
+                } catch (BinaryFormat.CorruptFileException e) {
+                    System.err.println("Skipping incomplete sync segment " + segment + ": " + e.getMessage());
+                    break;
+                }
+                next++;
+                changed = true;
+            }
+            cursors.put(id, next);
+        }
+        if (changed) {
+            saveState();
+        }
+        return sessions;
+    }
+
+    // The segment to carry on from after the newest readable rollup of a
+    // device, or 0 if there is none
+    private long readLatestRollup(Path device, boolean own, List<int[]> sessions) throws IOException {
+        List<Long> rollups = new ArrayList<>();
+        try (Stream<Path> files = Files.list(device)) {
+            files.map(file -> file.getFileName().toString())
+                .filter(name -> name.startsWith("rollup-") && name.endsWith(".bin"))
+                .forEach(name -> {
+                    try {
+                        rollups.add(Long.parseLong(name.substring("rollup-".length(), name.length() - ".bin".length())));
+                    } catch (NumberFormatException e) {
+                        // Not one of ours
+                    }
+                });
+        }
+        rollups.sort(Collections.reverseOrder());
+        for (long rollup : rollups) {
+            Path file = device.resolve(rollupName(rollup));
+            try {
+                readSegment(file, ROLLUP_MAGIC, own, sessions);
+                return rollup;
+            } catch (BinaryFormat.CorruptFileException e) {
+                System.err.println("Skipping incomplete sync rollup " + file + ": " + e.getMessage());
+            }
+        }
+        return 0;
+    }
+
+    private void readSegment(Path segment, boolean own, List<int[]> sessions) throws IOException {
+        readSegment(segment, SEGMENT_MAGIC, own, sessions);
+    }
+
+    // Segments of this device found here were written before a crash or by
+    // an earlier copy of the state, so they count as already exported
+    private void readSegment(Path segment, String magic, boolean own, List<int[]> sessions) throws IOException {
+        BinaryFormat.Reader reader = BinaryFormat.readFile(segment, magic, VERSION);
+        int entries = reader.getCount();
+        String[] words = new String[entries];
+        int[] counts = new int[entries];
+        for (int i = 0; i < entries; i++) {
+            words[i] = reader.getString();
+            counts[i] = (int) reader.getVarint();
+        }
+        int sessionCount = reader.getCount();
+        List<int[]> segmentSessions = new ArrayList<>(sessionCount);
+        for (int s = 0; s < sessionCount; s++) {
+            int length = reader.getCount();
+            int[] session = new int[length];
+            int size = 0;
+            for (int i = 0; i < length; i++) {
+                int id = dictionary.idOf(reader.getString());
+                if (id >= 0) {
+                    session[size++] = id;
+                }
+            }
+            segmentSessions.add(Arrays.copyOf(session, size));
+        }
+
+        // Only apply once the whole segment has been read
+        for (int i = 0; i < entries; i++) {
+            if (own) {
+                int id = dictionary.idOf(words[i]);
+                if (id >= 0) {
+                    exported[id] += counts[i];
+                }
+            } else {
+                addRemote(words[i], counts[i]);
+            }
+        }
+        if (!own) {
+            sessions.addAll(segmentSessions);
+        }
+    }
+
+    void queueSession(int[] session) {
+        synchronized (unexportedSessions) {
+            unexportedSessions.add(session);
+        }
+    }
+
+    /**
+     * Notes a local mistake for the next export. Call it on the thread that
+     * exports.
+     */
+    void recordLocalMistake(int id) {
+        changed.set(id);
+    }
+
+    /**
+     * Writes a segment with the local mistakes and sessions since the last
+     * export, if there are any. localCounts gives the local mistake count
+     * of a word by ID.
+     */
+    void export(IntUnaryOperator localCounts) throws IOException {
+        List<int[]> sessions;
+        synchronized (unexportedSessions) {
+            sessions = new ArrayList<>(unexportedSessions);
+            unexportedSessions.clear();
+        }
+
+        if (!comparedAll) {
+            // Mistakes from before a crash or before sync was turned on
+            for (int id = 0; id < exported.length; id++) {
+                if (localCounts.applyAsInt(id) > exported[id]) {
+                    changed.set(id);
+                }
+            }
+            comparedAll = true;
+        }
+        int entries = 0;
+        for (int id = changed.nextSetBit(0); id >= 0; id = changed.nextSetBit(id + 1)) {
+            if (localCounts.applyAsInt(id) > exported[id]) {
+                entries++;
+            }
+        }
+        if (entries == 0 && sessions.isEmpty()) {
+            changed.clear();
+            return;
+        }
+
+        long next = cursors.getOrDefault(deviceId, 0L);
+        BinaryFormat.Writer writer = new BinaryFormat.Writer(SEGMENT_MAGIC, VERSION);
+        writer.putVarint(entries);
+        for (int id = changed.nextSetBit(0); id >= 0; id = changed.nextSetBit(id + 1)) {
+            int count = localCounts.applyAsInt(id);
+            if (count > exported[id]) {
+                writer.putString(dictionary.word(id));
+                writer.putVarint(count - exported[id]);
+            }
+        }
+        putSessions(writer, sessions);
+
+        Path directory = Files.createDirectories(syncDirectory.resolve(DEVICES_DIRECTORY).resolve(deviceId));
+        BinaryFormat.writeFile(directory.resolve(segmentName(next)), writer);
+
+        for (int id = changed.nextSetBit(0); id >= 0; id = changed.nextSetBit(id + 1)) {
+            exported[id] = Math.max(exported[id], localCounts.applyAsInt(id));
+        }
+        changed.clear();
+        for (int[] session : sessions) {
+            if (exportedSessions.size() == ROLLUP_SESSIONS) {
+                exportedSessions.removeFirst();
+            }
+            exportedSessions.addLast(session);
+        }
+        cursors.put(deviceId, next + 1);
+        saveState();
+        if ((next + 1) % ROLLUP_EVERY == 0) {
+            writeRollup(directory, next + 1);
+        }
+    }
+
+    // Everything this device exported so far, which also covers its own
+    // segments read back after losing the state
+    private void writeRollup(Path directory, long segments) throws IOException {
+        BinaryFormat.Writer writer = new BinaryFormat.Writer(ROLLUP_MAGIC, VERSION);
+        putCounts(writer, exported, Collections.emptyMap());
+        putSessions(writer, exportedSessions);
+        BinaryFormat.writeFile(directory.resolve(rollupName(segments)), writer);
+    }
+
+    private void putSessions(BinaryFormat.Writer writer, Collection<int[]> sessions) {
+        writer.putVarint(sessions.size());
+        for (int[] session : sessions) {
+            writer.putVarint(session.length);
+            for (int id : session) {
+                writer.putString(dictionary.word(id));
+            }
+        }
+    }
+
+    private static String segmentName(long sequence) {
+        return "segment-" + sequence + ".bin";
+    }
+
+    private static String rollupName(long segments) {
+        return "rollup-" + segments + ".bin";
+    }
+}
@@ -0,0 +1,232 @@
+package spellingpractice;
+
+import java.util.*;
+
+/**
+ * Words ordered by mistake count (most first, then alphabetically), kept
+ * up to date as mistakes are recorded so the statistics view never has to
+ * re-sort. Backed by a treap stored in parallel int arrays indexed by word
+ * ID: moving a word after its count changes and finding the word at a
+ * given rank are both O(log n) expected.
+ *
+ * The index reads counts from the array it was built with. A caller that
+ * changes a count must remove() the word first and insert() it afterwards.
+ */
+final class RankingIndex {
+    private final WordDictionary dictionary;
+    private final int[] counts;
+    private final int[] alphabetical;
+    private final int[] alphaRank;
+    private final int[] left;
+    private final int[] right;
+    private final int[] size;
+    private int root = -1;
+
+    // Results of split(), to avoid allocating a pair per call
+    private int splitLeft;
+    private int splitRight;
+
+    RankingIndex(WordDictionary dictionary, int[] counts) {
+        int n = dictionary.size();
+        this.dictionary = dictionary;
+        this.counts = counts;
+        this.left = new int[n];
+        this.right = new int[n];
+        this.size = new int[n];
+
+        // Alphabetical order: sort the words themselves, then map back to IDs
+        String[] sorted = dictionary.words().toArray(new String[0]);
+        Arrays.sort(sorted);
+        alphabetical = new int[n];
+        alphaRank = new int[n];
+        for (int i = 0; i < n; i++) {
+            int id = dictionary.idOf(sorted[i]);
+            alphabetical[i] = id;
+            alphaRank[id] = i;
+        }
+
+        // Ranked order: counting sort by count, descending, stable on alphabetical order
+        int maxCount = 0;
+        for (int count : counts) {
+            maxCount = Math.max(maxCount, count);
+        }
+        int[] start = new int[maxCount + 2];
+        for (int count : counts) {
+            start[maxCount - count + 1]++;
+        }
+        for (int i = 1; i < start.length; i++) {
+            start[i] += start[i - 1];
+        }
+        int[] ranked = new int[n];
+        for (int id : alphabetical) {
+            ranked[start[maxCount - counts[id]]++] = id;
+        }
+
+        root = buildTreap(ranked);
+    }
+
+    // Cartesian tree over the ranked order: in order by rank and a max-heap
+    // by priority, the shape insert() and remove() keep. One pass with a
+    // stack holding the right spine; each node is pushed and popped once.
+    private int buildTreap(int[] ranked) {
+        int[] spine = new int[ranked.length];
+        int depth = 0;
+        for (int node : ranked) {
+            int last = -1;
+            while (depth > 0 && priority(spine[depth - 1]) < priority(node)) {
+                // Its subtree is final once it leaves the spine
+                last = spine[--depth];
+                update(last);
+            }
+            left[node] = last;
+            right[node] = -1;
+            if (depth > 0) {
+                right[spine[depth - 1]] = node;
+            }
+            spine[depth++] = node;
+        }
+        while (depth > 0) {
+            update(spine[--depth]);
+        }
+        return ranked.length == 0 ? -1 : spine[0];
+    }
+
+    int size() {
+        return root < 0 ? 0 : size[root];
+    }
+
+    int count(int id) {
+        return counts[id];
+    }
+
+    String word(int id) {
+        return dictionary.word(id);
+    }
+
+    /**
+     * The word at the given rank, 0 being the most misspelled.
+     */
+    int wordAtRank(int rank) {
+        int node = root;
+        while (node >= 0) {
+            int leftSize = sizeOf(left[node]);
+            if (rank < leftSize) {
+                node = left[node];
+            } else if (rank == leftSize) {
+                return node;
+            } else {
+                rank -= leftSize + 1;
+                node = right[node];
+            }
+        }
+        throw new IndexOutOfBoundsException("Rank " + rank);
+    }
+
+    /**
+     * The word at the given position in alphabetical order.
+     */
+    int wordAtAlphabetical(int position) {
+        return alphabetical[position];
+    }
+
+    /**
+     * Alphabetical positions [from, to) of the words starting with prefix,
+     * packed into a long as from << 32 | to.
+     */
+    long prefixRange(String prefix) {
+        int from = lowerBound(prefix);
+        int to = lowerBound(prefix + Character.MAX_VALUE);
+        return ((long) from << 32) | to;
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = alphabetical.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (dictionary.word(alphabetical[mid]).compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    void remove(int id) {
+        split(root, id, false);
+        int before = splitLeft;
+        split(splitRight, id, true);
+        root = merge(before, splitRight);
+    }
+
+    void insert(int id) {
+        left[id] = -1;
+        right[id] = -1;
+        size[id] = 1;
+        split(root, id, false);
+        int after = splitRight;
+        root = merge(merge(splitLeft, id), after);
+    }
+
+    // Ranked order: higher count first, then alphabetical
+    private int compare(int a, int b) {
+        if (counts[a] != counts[b]) {
+            return counts[a] > counts[b] ? -1 : 1;
+        }
+        return Integer.compare(alphaRank[a], alphaRank[b]);
+    }
+
+    // Splits a subtree into the nodes ordered before id (or up to and including
+    // id when inclusive) and the rest
+    private void split(int node, int id, boolean inclusive) {
+        if (node < 0) {
+            splitLeft = -1;
+            splitRight = -1;
+            return;
+        }
+        int c = compare(node, id);
+        if (c < 0 || (inclusive && c == 0)) {
+            split(right[node], id, inclusive);
+            right[node] = splitLeft;
+            update(node);
+            splitLeft = node;
+        } else {
+            split(left[node], id, inclusive);
+            left[node] = splitRight;
+            update(node);
+            splitRight = node;
+        }
+    }
+
+    private int merge(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        if (priority(a) > priority(b)) {
+            right[a] = merge(right[a], b);
+            update(a);
+            return a;
+        }
+        left[b] = merge(a, left[b]);
+        update(b);
+        return b;
+    }
+
+    // Distinct for distinct IDs: both steps are bijections
+    private static int priority(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void update(int node) {
+        size[node] = 1 + sizeOf(left[node]) + sizeOf(right[node]);
+    }
+
+    private int sizeOf(int node) {
+        return node < 0 ? 0 : size[node];
+    }
+}
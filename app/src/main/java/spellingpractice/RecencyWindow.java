@@ -0,0 +1,122 @@
+package spellingpractice;
+
+import java.util.*;
+
+/**
+ * The words used in the last few sessions, kept as a ring buffer of
+ * sessions plus a union bitset over word IDs that is updated as sessions
+ * enter and leave the window. Adding a session costs O(session length)
+ * whatever the depth, and scanning the union for free words runs a 64-bit
+ * word at a time.
+ */
+final class RecencyWindow {
+    private final int[][] ring;
+    private final int[] useCount;
+    private final BitSet union;
+    private int head;
+    private int size;
+    private int version;
+
+    RecencyWindow(int wordCount, int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("Negative depth " + depth);
+        }
+        this.ring = new int[depth][];
+        this.useCount = new int[wordCount];
+        this.union = new BitSet(wordCount);
+    }
+
+    int depth() {
+        return ring.length;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds a session, evicting the oldest one if the window is full.
+     */
+    void add(int[] session) {
+        version++;
+        if (ring.length == 0) {
+            return;
+        }
+
+        if (size == ring.length) {
+            for (int id : ring[head]) {
+                if (--useCount[id] == 0) {
+                    union.clear(id);
+                }
+            }
+        } else {
+            size++;
+        }
+
+        ring[head] = session;
+        for (int id : session) {
+            if (useCount[id]++ == 0) {
+                union.set(id);
+            }
+        }
+        head = (head + 1) % ring.length;
+    }
+
+    void clear() {
+        version++;
+        Arrays.fill(ring, null);
+        Arrays.fill(useCount, 0);
+        union.clear();
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Every word used by a session in the window. Callers must not modify it.
+     */
+    BitSet union() {
+        return union;
+    }
+
+    /**
+     * Counts changes to the window, so a caller can tell whether it has
+     * changed since it last looked.
+     */
+    int version() {
+        return version;
+    }
+
+    /**
+     * The union as it will be once the given session has been added, without
+     * changing the window.
+     */
+    BitSet unionAfter(int[] session) {
+        BitSet projected = new BitSet(useCount.length);
+        if (ring.length == 0) {
+            return projected;
+        }
+        List<int[]> sessions = sessions();
+        int keep = Math.min(sessions.size(), ring.length - 1);
+        for (int[] kept : sessions.subList(sessions.size() - keep, sessions.size())) {
+            for (int id : kept) {
+                projected.set(id);
+            }
+        }
+        for (int id : session) {
+            projected.set(id);
+        }
+        return projected;
+    }
+
+    /**
+     * Sessions in the window, oldest first.
+     */
+    List<int[]> sessions() {
+        List<int[]> sessions = new ArrayList<>(size);
+        int start = (head - size + ring.length) % Math.max(1, ring.length);
+        for (int i = 0; i < size; i++) {
+            sessions.add(ring[(start + i) % ring.length]);
+        }
+        return sessions;
+    }
+}
@@ -0,0 +1,145 @@
+package spellingpractice;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Recent session history in a checksummed binary file.
+ *
+ * Payload: a word table (count, then length-prefixed UTF-8 words), then the
+ * sessions (count, then for each its length and one varint table index per
+ * word). Words are stored once however many sessions use them, and commas
+ * or colons in words need no escaping.
+ *
+ * The comma-separated text file written by earlier versions is migrated on
+ * first load and kept with a .bak suffix.
+ */
+class SessionHistoryStore {
+    static final String HISTORY_FILE = "session_history.bin";
+    static final String LEGACY_HISTORY_FILE = "session_history.txt";
+
+    private static final String MAGIC = "SPSH";
+    private static final int VERSION = 1;
+
+    private final Path historyFile;
+    private final Path legacyHistoryFile;
+    private final WordDictionary dictionary;
+
+    SessionHistoryStore(Path directory, WordDictionary dictionary) {
+        this.historyFile = directory.resolve(HISTORY_FILE);
+        this.legacyHistoryFile = directory.resolve(LEGACY_HISTORY_FILE);
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Sessions oldest first, as dictionary IDs. Words that are no longer in
+     * the dictionary are left out.
+     */
+    List<int[]> load() throws IOException {
+        if (!Files.exists(historyFile)) {
+            if (!Files.exists(legacyHistoryFile)) {
+                return new ArrayList<>();
+            }
+            List<int[]> sessions = loadLegacy();
+            save(sessions);
+            Files.move(legacyHistoryFile, legacyHistoryFile.resolveSibling(LEGACY_HISTORY_FILE + ".bak"),
+                StandardCopyOption.REPLACE_EXISTING);
+            return sessions;
+        }
+
+        try {
+            return loadBinary();
+        } catch (BinaryFormat.CorruptFileException e) {
+            Path kept = BinaryFormat.quarantine(historyFile);
+            System.err.println("Session history is corrupt, moved to " + kept + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private List<int[]> loadBinary() throws IOException {
+        BinaryFormat.Reader reader = BinaryFormat.readFile(historyFile, MAGIC, VERSION);
+
+        int tableSize = reader.getCount();
+        int[] table = new int[tableSize];
+        for (int i = 0; i < tableSize; i++) {
+            table[i] = dictionary.idOf(reader.getString());
+        }
+
+        int sessionCount = reader.getCount();
+        List<int[]> sessions = new ArrayList<>(sessionCount);
+        for (int s = 0; s < sessionCount; s++) {
+            int length = reader.getCount();
+            int[] session = new int[length];
+            int size = 0;
+            for (int i = 0; i < length; i++) {
+                long index = reader.getVarint();
+                if (index < 0 || index >= tableSize) {
+                    throw new BinaryFormat.CorruptFileException(historyFile, "word index out of range");
+                }
+                int id = table[(int) index];
+                if (id >= 0) {
+                    session[size++] = id;
+                }
+            }
+            sessions.add(size == length ? session : Arrays.copyOf(session, size));
+        }
+        return sessions;
+    }
+
+    private List<int[]> loadLegacy() throws IOException {
+        List<int[]> sessions = new ArrayList<>();
+        for (String line : Files.readAllLines(legacyHistoryFile, StandardCharsets.UTF_8)) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            String[] words = line.split(",");
+            int[] session = new int[words.length];
+            int size = 0;
+            for (String word : words) {
+                int id = dictionary.idOf(word);
+                if (id >= 0) {
+                    session[size++] = id;
+                }
+            }
+            sessions.add(Arrays.copyOf(session, size));
+        }
+        return sessions;
+    }
+
+    void save(List<int[]> sessions) throws IOException {
+        // Table of the distinct IDs used, sorted so a binary search finds each index
+        int total = 0;
+        for (int[] session : sessions) {
+            total += session.length;
+        }
+        int[] distinct = new int[total];
+        int size = 0;
+        for (int[] session : sessions) {
+            System.arraycopy(session, 0, distinct, size, session.length);
+            size += session.length;
+        }
+        Arrays.sort(distinct);
+        int tableSize = 0;
+        for (int i = 0; i < distinct.length; i++) {
+            if (i == 0 || distinct[i] != distinct[i - 1]) {
+                distinct[tableSize++] = distinct[i];
+            }
+        }
+
+        BinaryFormat.Writer writer = new BinaryFormat.Writer(MAGIC, VERSION);
+        writer.putVarint(tableSize);
+        for (int i = 0; i < tableSize; i++) {
+            writer.putString(dictionary.word(distinct[i]));
+        }
+        writer.putVarint(sessions.size());
+        for (int[] session : sessions) {
+            writer.putVarint(session.length);
+            for (int id : session) {
+                writer.putVarint(Arrays.binarySearch(distinct, 0, tableSize, id));
+            }
+        }
+        BinaryFormat.writeFile(historyFile, writer);
+    }
+}
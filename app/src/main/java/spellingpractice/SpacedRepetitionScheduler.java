@@ -0,0 +1,318 @@
+package spellingpractice;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * SM-2 style scheduler. Every word that has been practiced has an ease
+ * factor, a review interval and a due time; correct answers push the due
+ * time further out each time, and a wrong answer brings the word back the
+ * next day. Words that keep being spelled right stop coming up for weeks
+ * and then months.
+ *
+ * Practiced words sit in an indexed min-heap keyed by due time, so picking
+ * a session is O(k log n) and updating one word after an answer is
+ * O(log n), whatever the vocabulary size. Words never practiced are
+ * introduced once the due words run out: any the caller prefers first,
+ * then the rest in dictionary order. Words with mistakes from before the
+ * schedule knew them are seeded as due.
+ *
+ * Saved as a checksummed binary file (see BinaryFormat): for each
+ * practiced word its text, due time in epoch seconds, interval in days,
+ * ease x100 and repetition count.
+ */
+final class SpacedRepetitionScheduler {
+    static final String SCHEDULE_FILE = "spelling_schedule.bin";
+
+    private static final String MAGIC = "SPSR";
+    private static final int VERSION = 1;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final float INITIAL_EASE = 2.5f;
+    private static final float MINIMUM_EASE = 1.3f;
+    private static final int CORRECT_QUALITY = 4;
+    private static final int WRONG_QUALITY = 1;
+
+    private final WordDictionary dictionary;
+    private final long[] due;
+    private final float[] ease;
+    private final int[] interval;
+    private final int[] repetitions;
+    private final int[] heap;
+    private final int[] heapPosition;
+    private int heapSize;
+    private int nextNewWord;
+
+    SpacedRepetitionScheduler(WordDictionary dictionary) {
+        int n = dictionary.size();
+        this.dictionary = dictionary;
+        this.due = new long[n];
+        this.ease = new float[n];
+        this.interval = new int[n];
+        this.repetitions = new int[n];
+        this.heap = new int[n];
+        this.heapPosition = new int[n];
+        Arrays.fill(ease, INITIAL_EASE);
+        Arrays.fill(heapPosition, -1);
+    }
+
+    private boolean isPracticed(int id) {
+        return heapPosition[id] >= 0;
+    }
+
+    /**
+     * Picks up to count words: those already due (most overdue first), then
+     * words never practiced, the preferred ones first in the order given,
+     * then the ones due soonest. Practiced words in recentlyUsedWords are
+     * held back until nothing else is left.
+     */
+    int[] nextSession(int count, long now, int[] preferredNewWords, BitSet recentlyUsedWords) {
+        // Enough to fill the session even if the recent words all come first
+        int[] popped = new int[Math.min(count + recentlyUsedWords.cardinality(), heapSize)];
+        for (int i = 0; i < popped.length; i++) {
+            popped[i] = pop();
+        }
+
+        int[] session = new int[count];
+        int size = 0;
+        for (int i = 0; i < popped.length && size < count; i++) {
+            if (due[popped[i]] <= now && !recentlyUsedWords.get(popped[i])) {
+                session[size++] = popped[i];
+            }
+        }
+        for (int i = 0; i < preferredNewWords.length && size < count; i++) {
+            int id = preferredNewWords[i];
+            if (!isPracticed(id) && !contains(popped, popped.length, id) && !contains(session, size, id)) {
+                session[size++] = id;
+            }
+        }
+        while (size < count && nextNewWord < due.length) {
+            if (!isPracticed(nextNewWord) && !contains(popped, popped.length, nextNewWord)
+                    && !contains(session, size, nextNewWord)) {
+                session[size++] = nextNewWord;
+            }
+            nextNewWord++;
+        }
+        for (int i = 0; i < popped.length && size < count; i++) {
+            if (!recentlyUsedWords.get(popped[i]) && !contains(session, size, popped[i])) {
+                session[size++] = popped[i];
+            }
+        }
+        for (int i = 0; i < popped.length && size < count; i++) {
+            if (!contains(session, size, popped[i])) {
+                session[size++] = popped[i];
+            }
+        }
+
+        // The words stay scheduled until they are actually answered
+        for (int id : popped) {
+            push(id);
+        }
+        if (nextNewWord >= due.length && heapSize < due.length) {
+            // Pick up words that were offered but never answered
+            nextNewWord = 0;
+            while (nextNewWord < due.length && isPracticed(nextNewWord)) {
+                nextNewWord++;
+            }
+        }
+        return Arrays.copyOf(session, size);
+    }
+
+    private static boolean contains(int[] ids, int length, int id) {
+        for (int i = 0; i < length; i++) {
+            if (ids[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Where nextSession() looks for the next word never practiced. It moves
+     * on as new words are introduced; a caller that throws a session away
+     * can put it back with rewindNewWords().
+     */
+    int newWordPosition() {
+        return nextNewWord;
+    }
+
+    void rewindNewWords(int position) {
+        nextNewWord = position;
+    }
+
+    void recordAnswer(int id, boolean correct, long now) {
+        if (correct) {
+            if (repetitions[id] == 0) {
+                interval[id] = 1;
+            } else if (repetitions[id] == 1) {
+                interval[id] = 6;
+            } else {
+                interval[id] = Math.round(interval[id] * ease[id]);
+            }
+            repetitions[id]++;
+            ease[id] += easeChange(CORRECT_QUALITY);
+        } else {
+            repetitions[id] = 0;
+            interval[id] = 1;
+            ease[id] += easeChange(WRONG_QUALITY);
+        }
+        ease[id] = Math.max(MINIMUM_EASE, ease[id]);
+        due[id] = now + interval[id] * DAY_MILLIS;
+
+        if (isPracticed(id)) {
+            siftUp(heapPosition[id]);
+            siftDown(heapPosition[id]);
+        } else {
+            push(id);
+        }
+    }
+
+    // SM-2 ease adjustment for an answer quality from 0 (blackout) to 5 (perfect)
+    private static float easeChange(int quality) {
+        int miss = 5 - quality;
+        return 0.1f - miss * (0.08f + miss * 0.02f);
+    }
+
+    /**
+     * Counts each word already scheduled that has mistakes in newMistakes,
+     * made elsewhere since the schedule last saw it, as answered wrong, and
+     * makes it due now: when the mistake was made is not known, so it may
+     * well be a day old already. Words not scheduled yet are left to
+     * seedMistakes().
+     */
+    void recordMistakesElsewhere(int[] newMistakes, long now) {
+        for (int id = 0; id < due.length; id++) {
+            if (newMistakes[id] > 0 && isPracticed(id)) {
+                recordAnswer(id, false, now - DAY_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Schedules the words with mistakes that the schedule does not know yet,
+     * such as progress from before spaced repetition was chosen, as due now
+     * with the most mistakes first. They start over as if last answered
+     * wrong.
+     */
+    void seedMistakes(int[] mistakeCounts, long now) {
+        for (int id = 0; id < due.length; id++) {
+            if (mistakeCounts[id] > 0 && !isPracticed(id)) {
+                due[id] = now - mistakeCounts[id];
+                interval[id] = 1;
+                repetitions[id] = 0;
+                push(id);
+            }
+        }
+        while (nextNewWord < due.length && isPracticed(nextNewWord)) {
+            nextNewWord++;
+        }
+    }
+
+    long dueTime(int id) {
+        return due[id];
+    }
+
+    int intervalDays(int id) {
+        return interval[id];
+    }
+
+    void load(Path file) throws IOException {
+        BinaryFormat.Reader reader = BinaryFormat.readFile(file, MAGIC, VERSION);
+        int entries = reader.getCount();
+        for (int i = 0; i < entries; i++) {
+            int id = dictionary.idOf(reader.getString());
+            long dueSeconds = reader.getVarint();
+            int days = (int) reader.getVarint();
+            float easeFactor = reader.getVarint() / 100f;
+            int reps = (int) reader.getVarint();
+            if (id < 0 || isPracticed(id)) {
+                continue;
+            }
+            due[id] = dueSeconds * 1000;
+            interval[id] = days;
+            ease[id] = easeFactor;
+            repetitions[id] = reps;
+            heap[heapSize] = id;
+            heapPosition[id] = heapSize++;
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+        nextNewWord = 0;
+        while (nextNewWord < due.length && isPracticed(nextNewWord)) {
+            nextNewWord++;
+        }
+    }
+
+    /**
+     * Encodes the schedule for saving. Cheap enough to call on the UI thread
+     * at the end of a session; the returned writer can be written anywhere.
+     */
+    BinaryFormat.Writer encode() {
+        BinaryFormat.Writer writer = new BinaryFormat.Writer(MAGIC, VERSION);
+        writer.putVarint(heapSize);
+        for (int i = 0; i < heapSize; i++) {
+            int id = heap[i];
+            writer.putString(dictionary.word(id));
+            writer.putVarint(due[id] / 1000);
+            writer.putVarint(interval[id]);
+            writer.putVarint(Math.round(ease[id] * 100));
+            writer.putVarint(repetitions[id]);
+        }
+        return writer;
+    }
+
+    private void push(int id) {
+        heap[heapSize] = id;
+        heapPosition[id] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int pop() {
+        int top = heap[0];
+        heapPosition[top] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapPosition[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int index) {
+        int id = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (due[heap[parent]] <= due[id]) {
+                break;
+            }
+            heap[index] = heap[parent];
+            heapPosition[heap[index]] = index;
+            index = parent;
+        }
+        heap[index] = id;
+        heapPosition[id] = index;
+    }
+
+    private void siftDown(int index) {
+        int id = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && due[heap[child + 1]] < due[heap[child]]) {
+                child++;
+            }
+            if (due[id] <= due[heap[child]]) {
+                break;
+            }
+            heap[index] = heap[child];
+            heapPosition[heap[index]] = index;
+            index = child;
+        }
+        heap[index] = id;
+        heapPosition[id] = index;
+    }
+}
@@ -0,0 +1,597 @@
+package spellingpractice;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+
+public class SpellingPracticeApp extends JFrame {
+    private static final int WORDS_PER_SESSION = PracticeEngine.WORDS_PER_SESSION;
+    
+    // Print the startup timings and exit once the first profile has loaded
+    private static boolean startupCheck;
+    
+    private final ProfileManager profiles;
+    private PracticeEngine engine;
+    
+    // UI Components
+    private JLabel wordLabel;
+    private JLabel progressLabel;
+    private JButton correctButton;
+    private JButton wrongButton;
+    private JButton showStatsButton;
+    private JLabel statsLabel;
+    private JLabel sessionStatsLabel;
+    private JComboBox<String> profileBox;
+    private JButton newProfileButton;
+    
+    public SpellingPracticeApp(ProfileManager profiles, String profile) {
+        this.profiles = profiles;
+        
+        setTitle("Spelling Practice - " + profile);
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setLayout(new BorderLayout());
+        
+        // Flush pending writes of every open profile on window close and on System.exit
+        Runtime.getRuntime().addShutdownHook(new Thread(profiles::close, "persistence-shutdown"));
+        
+        try {
+            // Progress and history load behind the first, provisional session
+            engine = profiles.openInBackground(profile, SwingUtilities::invokeLater);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(this, 
+                "Error initializing application data", 
+                "Error", 
+                JOptionPane.ERROR_MESSAGE);
+            System.exit(1);
+        }
+        
+        createUI();
+        startNewSession();
+        
+        setSize(900, 650);
+        setLocationRelativeTo(null);
+        setVisible(true);
+        SwingUtilities.invokeLater(Metrics.INSTANCE::recordFirstWord);
+        awaitLoad();
+    }
+    
+    // Statistics and profile changes wait for the learner's progress
+    private void awaitLoad() {
+        PracticeEngine loadingEngine = engine;
+        setLoading(loadingEngine.isLoading());
+        // A failed load completes on the loader thread, so hop back to the EDT
+        loadingEngine.whenLoaded().whenCompleteAsync((loaded, failure) -> {
+            if (failure != null || !loaded) {
+                if (failure != null) {
+                    failure.printStackTrace();
+                }
+                JOptionPane.showMessageDialog(this, 
+                    "Error loading progress for " + profiles.active(), 
+                    "Error", 
+                    JOptionPane.ERROR_MESSAGE);
+                System.exit(1);
+            }
+            Metrics.INSTANCE.recordLoaded();
+            if (startupCheck) {
+                System.out.println(startupTimings());
+                System.exit(0);
+            }
+            if (loadingEngine != engine) {
+                return;
+            }
+            setLoading(false);
+            // The rest of the session has been redrawn; refresh the word's history
+            if (!engine.isSessionComplete()) {
+                loadNextWord();
+            }
+        }, SwingUtilities::invokeLater);
+    }
+    
+    private void setLoading(boolean loading) {
+        showStatsButton.setEnabled(!loading);
+        profileBox.setEnabled(!loading);
+        newProfileButton.setEnabled(!loading);
+    }
+    
+    private static String startupTimings() {
+        return String.format("firstWordMs=%d loadedMs=%d", 
+            Metrics.INSTANCE.getTimeToFirstWordMillis(), Metrics.INSTANCE.getTimeToLoadedMillis());
+    }
+    
+    private void startNewSession() {
+        engine.startNewSession();
+        loadNextWord();
+    }
+    
+    private void switchProfile(String name) {
+        if (name == null || name.equalsIgnoreCase(profiles.active())) {
+            return;
+        }
+        try {
+            engine = profiles.openInBackground(name, SwingUtilities::invokeLater);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(this, 
+                "Could not open profile " + name + ": " + e.getMessage(), 
+                "Error", 
+                JOptionPane.ERROR_MESSAGE);
+            profileBox.setSelectedItem(profiles.active());
+            return;
+        }
+        setTitle("Spelling Practice - " + profiles.active());
+        
+        // A profile that was still cached carries on where it left off
+        if (engine.isSessionComplete()) {
+            startNewSession();
+        } else {
+            updateSessionStats();
+            loadNextWord();
+        }
+        awaitLoad();
+    }
+    
+    private void createProfile() {
+        String name = JOptionPane.showInputDialog(this, "Name of the new profile:", 
+            "New Profile", JOptionPane.PLAIN_MESSAGE);
+        if (name == null) {
+            return;
+        }
+        name = name.trim();
+        if (!ProfileManager.isValidName(name)) {
+            JOptionPane.showMessageDialog(this, 
+                "Use letters, digits, spaces, '-' or '_' (up to 64 characters).", 
+                "Invalid Name", 
+                JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        // An existing profile differing only in case is the same profile
+        for (int i = 0; i < profileBox.getItemCount(); i++) {
+            if (profileBox.getItemAt(i).equalsIgnoreCase(name)) {
+                profileBox.setSelectedIndex(i);
+                return;
+            }
+        }
+        profileBox.addItem(name);
+        profileBox.setSelectedItem(name);
+    }
+    
+    private void createUI() {
+        // Profile selection
+        JPanel profilePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        profilePanel.add(new JLabel("Profile:"));
+        profileBox = new JComboBox<>();
+        try {
+            for (String name : profiles.profiles()) {
+                profileBox.addItem(name);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (((DefaultComboBoxModel<String>) profileBox.getModel()).getIndexOf(profiles.active()) < 0) {
+            profileBox.addItem(profiles.active());
+        }
+        profileBox.setSelectedItem(profiles.active());
+        profileBox.addActionListener(e -> switchProfile((String) profileBox.getSelectedItem()));
+        profilePanel.add(profileBox);
+        
+        newProfileButton = new JButton("New Profile...");
+        newProfileButton.addActionListener(e -> createProfile());
+        profilePanel.add(newProfileButton);
+        
+        add(profilePanel, BorderLayout.NORTH);
+        
+        // Main panel
+        JPanel mainPanel = new JPanel(new GridBagLayout());
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(10, 10, 10, 10);
+        
+        // Progress label
+        progressLabel = new JLabel("Word 1 of " + WORDS_PER_SESSION);
+        progressLabel.setFont(new Font("Arial", Font.BOLD, 24));
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        gbc.gridwidth = 2;
+        mainPanel.add(progressLabel, gbc);
+        
+        // Word display
+        wordLabel = new JLabel("", SwingConstants.CENTER);
+        wordLabel.setFont(new Font("Arial", Font.BOLD, 72));
+        wordLabel.setPreferredSize(new Dimension(700, 150));
+        wordLabel.setBorder(BorderFactory.createLineBorder(Color.GRAY, 4));
+        gbc.gridy = 1;
+        mainPanel.add(wordLabel, gbc);
+        
+        // Buttons panel
+        JPanel buttonPanel = new JPanel(new FlowLayout());
+        
+        correctButton = new JButton("Correct");
+        correctButton.setFont(new Font("Arial", Font.BOLD, 32));
+        correctButton.setPreferredSize(new Dimension(200, 80));
+        correctButton.setBackground(Color.GREEN);
+        correctButton.setOpaque(true);
+        correctButton.setBorderPainted(false);
+        correctButton.addActionListener(this::handleCorrect);
+        buttonPanel.add(correctButton);
+        
+        wrongButton = new JButton("Wrong");
+        wrongButton.setFont(new Font("Arial", Font.BOLD, 32));
+        wrongButton.setPreferredSize(new Dimension(200, 80));
+        wrongButton.setBackground(Color.RED);
+        wrongButton.setOpaque(true);
+        wrongButton.setBorderPainted(false);
+        wrongButton.addActionListener(this::handleWrong);
+        buttonPanel.add(wrongButton);
+        
+        gbc.gridy = 2;
+        mainPanel.add(buttonPanel, gbc);
+        
+        // Session statistics
+        sessionStatsLabel = new JLabel("Session: Correct: 0 | Wrong: 0");
+        sessionStatsLabel.setFont(new Font("Arial", Font.BOLD, 20));
+        gbc.gridy = 3;
+        mainPanel.add(sessionStatsLabel, gbc);
+        
+        // Statistics label
+        statsLabel = new JLabel("");
+        statsLabel.setFont(new Font("Arial", Font.BOLD | Font.ITALIC, 18));
+        gbc.gridy = 4;
+        mainPanel.add(statsLabel, gbc);
+        
+        add(mainPanel, BorderLayout.CENTER);
+        
+        // Bottom panel with additional buttons
+        JPanel bottomPanel = new JPanel(new FlowLayout());
+        
+        showStatsButton = new JButton("Show All Statistics");
+        showStatsButton.setFont(new Font("Arial", Font.BOLD, 18));
+        showStatsButton.setPreferredSize(new Dimension(250, 50));
+        showStatsButton.addActionListener(e -> showStatistics());
+        bottomPanel.add(showStatsButton);
+        
+        add(bottomPanel, BorderLayout.SOUTH);
+    }
+    
+    private void loadNextWord() {
+        if (engine.isSessionComplete()) {
+            // Session complete
+            sessionComplete();
+            return;
+        }
+        
+        String currentWord = engine.getCurrentWord();
+        wordLabel.setText(currentWord);
+        progressLabel.setText("Word " + (engine.getCurrentWordIndex() + 1) + " of " + WORDS_PER_SESSION);
+        
+        // Update stats label
+        int mistakes = engine.isLoading() ? -1 : engine.getMistakeCount(currentWord);
+        if (mistakes < 0) {
+            statsLabel.setText("Loading your progress...");
+        } else if (mistakes > 0) {
+            statsLabel.setText("This word was misspelled " + mistakes + " time(s) before");
+        } else {
+            statsLabel.setText("First time practicing this word");
+        }
+    }
+    
+    private void handleCorrect(ActionEvent e) {
+        engine.markCorrect();
+        updateSessionStats();
+        loadNextWord();
+    }
+    
+    private void handleWrong(ActionEvent e) {
+        // Simply record the mistake without asking for details
+        engine.markWrong();
+        updateSessionStats();
+        loadNextWord();
+    }
+    
+    private void updateSessionStats() {
+        sessionStatsLabel.setText(String.format("Session: Correct: %d | Wrong: %d", 
+            engine.getSessionCorrect(), engine.getSessionWrong()));
+    }
+    
+    private void sessionComplete() {
+        // Save session history
+        engine.completeSession();
+        
+        // Show summary dialog
+        JDialog dialog = new JDialog(this, "Session Complete!", true);
+        dialog.setLayout(new BorderLayout());
+        dialog.setSize(500, 400);
+        dialog.setLocationRelativeTo(this);
+        
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        
+        // Summary text
+        JTextArea summaryArea = new JTextArea();
+        summaryArea.setEditable(false);
+        summaryArea.setFont(new Font("Arial", Font.BOLD, 16));
+        
+        StringBuilder summary = new StringBuilder();
+        summary.append("Session Complete!\n\n");
+        summary.append("Total Words: ").append(WORDS_PER_SESSION).append("\n");
+        summary.append("Correct: ").append(engine.getSessionCorrect()).append("\n");
+        summary.append("Wrong: ").append(engine.getSessionWrong()).append("\n");
+        summary.append("Accuracy: ").append(String.format("%.1f%%", 
+            (engine.getSessionCorrect() * 100.0 / WORDS_PER_SESSION))).append("\n\n");
+        
+        List<String> sessionMistakes = engine.getSessionMistakes();
+        if (!sessionMistakes.isEmpty()) {
+            summary.append("Words to practice:\n");
+            for (String word : sessionMistakes) {
+                summary.append("  • ").append(word).append("\n");
+            }
+        } else {
+            summary.append("Perfect score! All words spelled correctly!");
+        }
+        
+        summaryArea.setText(summary.toString());
+        JScrollPane scrollPane = new JScrollPane(summaryArea);
+        panel.add(scrollPane, BorderLayout.CENTER);
+        
+        // Buttons
+        JPanel buttonPanel = new JPanel(new FlowLayout());
+        
+        JButton newSessionButton = new JButton("New Session");
+        newSessionButton.setFont(new Font("Arial", Font.BOLD, 16));
+        newSessionButton.setPreferredSize(new Dimension(150, 40));
+        newSessionButton.addActionListener(ev -> {
+            dialog.dispose();
+            startNewSession();
+        });
+        buttonPanel.add(newSessionButton);
+        
+        JButton exitButton = new JButton("Exit");
+        exitButton.setFont(new Font("Arial", Font.BOLD, 16));
+        exitButton.setPreferredSize(new Dimension(150, 40));
+        exitButton.addActionListener(ev -> System.exit(0));
+        buttonPanel.add(exitButton);
+        
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+        dialog.add(panel);
+        
+        // Disable main window buttons
+        correctButton.setEnabled(false);
+        wrongButton.setEnabled(false);
+        
+        dialog.setVisible(true);
+    }
+    
+    private void showStatistics() {
+        JDialog dialog = new JDialog(this, "Spelling Statistics", true);
+        dialog.setLayout(new BorderLayout());
+        dialog.setSize(500, 400);
+        dialog.setLocationRelativeTo(this);
+        
+        // Table reads rows on demand from the engine's ranking index
+        StatisticsTableModel model = new StatisticsTableModel(engine.getRanking());
+        JTable table = new JTable(model);
+        // The model sorts from the index; a row sorter would read every row
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = table.columnAtPoint(e.getPoint());
+                if (column >= 0) {
+                    model.sortBy(table.convertColumnIndexToModel(column));
+                }
+            }
+        });
+        JScrollPane scrollPane = new JScrollPane(table);
+        
+        dialog.add(scrollPane, BorderLayout.CENTER);
+        
+        // Search and top-K controls
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filterPanel.add(new JLabel("Starts with:"));
+        JTextField searchField = new JTextField(12);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                model.setPrefix(searchField.getText().trim());
+            }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                model.setPrefix(searchField.getText().trim());
+            }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                model.setPrefix(searchField.getText().trim());
+            }
+        });
+        filterPanel.add(searchField);
+        
+        filterPanel.add(new JLabel("Show:"));
+        String[] limits = {"All", "Top 10", "Top 50", "Top 100"};
+        JComboBox<String> limitBox = new JComboBox<>(limits);
+        limitBox.addActionListener(e -> {
+            String choice = (String) limitBox.getSelectedItem();
+            model.setLimit(choice.equals("All") 
+                ? Integer.MAX_VALUE 
+                : Integer.parseInt(choice.substring("Top ".length())));
+        });
+        filterPanel.add(limitBox);
+        dialog.add(filterPanel, BorderLayout.NORTH);
+        
+        // Export and close buttons
+        JButton exportButton = new JButton("Export Report...");
+        exportButton.addActionListener(e -> exportReport(dialog));
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dialog.dispose());
+        JPanel buttonPanel = new JPanel();
+        buttonPanel.add(exportButton);
+        buttonPanel.add(closeButton);
+        dialog.add(buttonPanel, BorderLayout.SOUTH);
+        
+        dialog.setVisible(true);
+    }
+    
+    private void exportReport(Component parent) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export Report To Folder");
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        if (chooser.showSaveDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path folder = chooser.getSelectedFile().toPath();
+        
+        // The report scans the whole answer history, so build it off the EDT
+        PracticeEngine reportEngine = engine;
+        CompletableFuture.runAsync(() -> {
+            try {
+                AnalyticsReport report = reportEngine.buildReport();
+                report.writeCsv(folder);
+                report.writeHtml(folder.resolve(AnalyticsReport.HTML_FILE));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).whenComplete((done, failure) -> SwingUtilities.invokeLater(() -> {
+            if (failure != null) {
+                failure.printStackTrace();
+                JOptionPane.showMessageDialog(parent, 
+                    "Could not export the report: " + failure.getMessage(), 
+                    "Error", 
+                    JOptionPane.ERROR_MESSAGE);
+            } else {
+                JOptionPane.showMessageDialog(parent, 
+                    "Report written to " + folder.toAbsolutePath());
+            }
+        }));
+    }
+    
+    /**
+     * Usage: SpellingPracticeApp [--words FILE] [--list NAME] [--level N] [--avoid SESSIONS]
+     *                           [--mode spaced|weighted] [--metrics FILE] [--profile NAME]
+     *                           [--sync FOLDER]
+     *        SpellingPracticeApp --startup-check [options as above]
+     *        SpellingPracticeApp --server [port] [data directory] [word list file] [metrics file]
+     *        SpellingPracticeApp --simulate [options, see PracticeSimulator]
+     *        SpellingPracticeApp --report OUTPUT_DIRECTORY [data directory...]
+     *
+     * The window and a first, provisional session come up while the
+     * profile's progress is still loading (see PracticeEngine.loadInBackground).
+     * --startup-check prints the milliseconds from JVM start to the first
+     * word and to the progress being loaded, then exits; without a display
+     * it times the same steps minus the window. The target is the first word
+     * within 500 ms of a cold start, using a class-data sharing archive made
+     * by a training run:
+     *   java -XX:ArchiveClassesAtExit=spelling.jsa -jar app.jar --startup-check
+     *   java -XX:SharedArchiveFile=spelling.jsa -jar app.jar
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--server")) {
+            LearnerServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--simulate")) {
+            PracticeSimulator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--report")) {
+            AnalyticsReport.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--startup-check")) {
+            startupCheck = true;
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        
+        String wordsFile = null;
+        String listName = null;
+        int level = Integer.MAX_VALUE;
+        int sessionsToAvoid = PracticeEngine.SESSIONS_TO_AVOID;
+        PracticeEngine.SelectionMode mode = PracticeEngine.SelectionMode.SPACED_REPETITION;
+        String metricsFile = null;
+        String profile = ProfileManager.DEFAULT_PROFILE;
+        Path syncFolder = null;
+        if (args.length % 2 != 0) {
+            throw new IllegalArgumentException("Missing value for option " + args[args.length - 1]);
+        }
+        for (int i = 0; i < args.length; i += 2) {
+            switch (args[i]) {
+                case "--words": wordsFile = args[i + 1]; break;
+                case "--list": listName = args[i + 1]; break;
+                case "--level": level = Integer.parseInt(args[i + 1]); break;
+                case "--avoid": sessionsToAvoid = Integer.parseInt(args[i + 1]); break;
+                case "--mode": mode = PracticeEngine.SelectionMode.fromName(args[i + 1]); break;
+                case "--metrics": metricsFile = args[i + 1]; break;
+                case "--profile": profile = args[i + 1]; break;
+                case "--sync": syncFolder = Paths.get(args[i + 1]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        
+        // Timings are visible over JMX, and written to a file every minute if
+        // asked; registering pulls in JMX, so keep it off the way to the first word
+        CompletableFuture.runAsync(Metrics::register);
+        if (metricsFile != null) {
+            Metrics.startDump(Paths.get(metricsFile), 60);
+        }
+        EdtMonitor.install();
+        
+        WordDictionary words;
+        try {
+            words = wordsFile != null
+                ? WordListLoader.load(Paths.get(wordsFile), listName, level)
+                : WordListLoader.loadDefault();
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(null, 
+                "Could not load word list: " + e.getMessage(), 
+                "Error", 
+                JOptionPane.ERROR_MESSAGE);
+            System.exit(1);
+            return;
+        }
+        
+        ProfileManager profiles = new ProfileManager(Paths.get(""), words, sessionsToAvoid, mode, syncFolder);
+        String initialProfile = profile;
+        if (startupCheck && GraphicsEnvironment.isHeadless()) {
+            checkStartupHeadless(profiles, initialProfile);
+            return;
+        }
+        SwingUtilities.invokeLater(() -> new SpellingPracticeApp(profiles, initialProfile));
+    }
+    
+    // The constructor's steps to the first word and to loaded progress, minus the window
+    private static void checkStartupHeadless(ProfileManager profiles, String profile) throws IOException {
+        try (profiles) {
+            // This thread stands in for the EDT
+            BlockingQueue<Runnable> engineThread = new LinkedBlockingQueue<>();
+            PracticeEngine engine = profiles.openInBackground(profile, engineThread::add);
+            engine.startNewSession();
+            engine.getCurrentWord();
+            Metrics.INSTANCE.recordFirstWord();
+            CompletableFuture<Boolean> loaded = engine.whenLoaded();
+            while (!loaded.isDone()) {
+                Runnable task = engineThread.poll(100, TimeUnit.MILLISECONDS);
+                if (task != null) {
+                    task.run();
+                }
+            }
+            if (!loaded.join()) {
+                throw new IOException("No words to practice");
+            }
+            Metrics.INSTANCE.recordLoaded();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        System.out.println(startupTimings());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,136 @@
+package spellingpractice;
+
+import java.util.Arrays;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Word/mistake table that reads rows straight from the RankingIndex, so
+ * only the rows on screen are ever looked up.
+ *
+ * With no filter, rows are in ranked order (most misspelled first). With a
+ * search prefix, rows are the matching words in alphabetical order. Either
+ * view can be cut to the first N rows.
+ *
+ * Clicking a column header sorts by it instead of a JTable row sorter,
+ * which would look up every row. Words sort by the alphabetical order and
+ * counts by the ranking, both already kept by the index, read backwards
+ * for the other direction. Only counts within a search prefix are sorted
+ * here, and just the matching words.
+ */
+class StatisticsTableModel extends AbstractTableModel {
+    private static final String[] COLUMN_NAMES = {"Word", "Times Wrong"};
+    static final int WORD_COLUMN = 0;
+    static final int COUNT_COLUMN = 1;
+
+    private final RankingIndex ranking;
+    private String prefix = "";
+    private int rangeFrom;
+    private int rangeTo;
+    private int limit = Integer.MAX_VALUE;
+    // -1 until a header is clicked: ranked without a prefix, alphabetical with one
+    private int sortColumn = -1;
+    private boolean ascending;
+    // The prefix range by count, most misspelled first, built when needed
+    private int[] rangeByCount;
+
+    StatisticsTableModel(RankingIndex ranking) {
+        this.ranking = ranking;
+    }
+
+    void setPrefix(String prefix) {
+        this.prefix = prefix;
+        rangeByCount = null;
+        if (!prefix.isEmpty()) {
+            long range = ranking.prefixRange(prefix);
+            rangeFrom = (int) (range >>> 32);
+            rangeTo = (int) range;
+        }
+        fireTableDataChanged();
+    }
+
+    /**
+     * Shows at most the first limit rows; Integer.MAX_VALUE shows all.
+     */
+    void setLimit(int limit) {
+        this.limit = limit;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Sorts by the column, reversing the order if it is already sorted by
+     * it. Words start A to Z and counts most first.
+     */
+    void sortBy(int column) {
+        ascending = column == sortColumn ? !ascending : column == WORD_COLUMN;
+        sortColumn = column;
+        fireTableDataChanged();
+    }
+
+    int sortColumn() {
+        return sortColumn;
+    }
+
+    boolean isAscending() {
+        return ascending;
+    }
+
+    private int wordAt(int row) {
+        boolean byWord = prefix.isEmpty() ? sortColumn == WORD_COLUMN : sortColumn != COUNT_COLUMN;
+        // Words read A to Z, counts most first
+        boolean reversed = sortColumn >= 0 && ascending != byWord;
+        int rows = prefix.isEmpty() ? ranking.size() : rangeTo - rangeFrom;
+        int position = reversed ? rows - 1 - row : row;
+        if (prefix.isEmpty()) {
+            return byWord ? ranking.wordAtAlphabetical(position) : ranking.wordAtRank(position);
+        }
+        if (byWord) {
+            return ranking.wordAtAlphabetical(rangeFrom + position);
+        }
+        if (rangeByCount == null) {
+            rangeByCount = sortRangeByCount();
+        }
+        return rangeByCount[position];
+    }
+
+    private int[] sortRangeByCount() {
+        // Count descending in the high bits, alphabetical position in the low ones
+        long[] keys = new long[rangeTo - rangeFrom];
+        for (int i = 0; i < keys.length; i++) {
+            int id = ranking.wordAtAlphabetical(rangeFrom + i);
+            keys[i] = (long) (Integer.MAX_VALUE - ranking.count(id)) << 32 | (rangeFrom + i);
+        }
+        Arrays.sort(keys);
+        int[] ids = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            ids[i] = ranking.wordAtAlphabetical((int) keys[i]);
+        }
+        return ids;
+    }
+
+    @Override
+    public int getRowCount() {
+        int rows = prefix.isEmpty() ? ranking.size() : rangeTo - rangeFrom;
+        return Math.min(rows, limit);
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 0 ? String.class : Integer.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int id = wordAt(row);
+        return column == 0 ? ranking.word(id) : ranking.count(id);
+    }
+}
@@ -0,0 +1,77 @@
+package spellingpractice;
+
+import java.util.Random;
+
+/**
+ * Weighted sampling without replacement over a fixed set of indices.
+ * Backed by a Fenwick (binary indexed) tree so each draw is O(log n).
+ */
+class WeightedSampler {
+    private final long[] tree;
+    private final long[] weights;
+    private final int size;
+    private int remaining;
+    private long total;
+
+    WeightedSampler(long[] weights) {
+        this.size = weights.length;
+        this.weights = weights.clone();
+        this.tree = new long[size + 1];
+
+        // Build the tree in O(n)
+        for (int i = 0; i < size; i++) {
+            if (this.weights[i] < 0) {
+                throw new IllegalArgumentException("Negative weight at index " + i);
+            }
+            if (this.weights[i] > 0) {
+                remaining++;
+            }
+            total += this.weights[i];
+            tree[i + 1] += this.weights[i];
+            int parent = (i + 1) + ((i + 1) & -(i + 1));
+            if (parent <= size) {
+                tree[parent] += tree[i + 1];
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return remaining == 0;
+    }
+
+    /**
+     * Draws an index with probability proportional to its weight and
+     * removes it from further draws. Returns -1 when nothing is left.
+     */
+    int next(Random random) {
+        if (remaining == 0) {
+            return -1;
+        }
+
+        long target = Math.min((long) (random.nextDouble() * total), total - 1);
+
+        // Walk down the tree to find the first prefix sum greater than target
+        int pos = 0;
+        for (int step = Integer.highestOneBit(size); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next <= size && tree[next] <= target) {
+                pos = next;
+                target -= tree[next];
+            }
+        }
+
+        int index = pos;
+        remove(index);
+        return index;
+    }
+
+    private void remove(int index) {
+        long weight = weights[index];
+        weights[index] = 0;
+        total -= weight;
+        remaining--;
+        for (int i = index + 1; i <= size; i += i & -i) {
+            tree[i] -= weight;
+        }
+    }
+}
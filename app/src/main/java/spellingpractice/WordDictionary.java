@@ -0,0 +1,135 @@
+package spellingpractice;
+
+import java.util.*;
+
+/**
+ * Immutable word list that gives every distinct word a dense int ID, so
+ * per-learner statistics can live in primitive arrays indexed by ID.
+ * Lookups use an open-addressing table, with no boxing. The dictionary is
+ * safe to share between engines and threads.
+ */
+final class WordDictionary {
+    private final String[] words;
+    private final int[] table;
+    private final int mask;
+
+    private WordDictionary(String[] words, int[] table) {
+        this.words = words;
+        this.table = table;
+        this.mask = table.length - 1;
+    }
+
+    /**
+     * Builds a dictionary from a word list. IDs follow first occurrence and
+     * repeated entries are dropped.
+     */
+    static WordDictionary of(Collection<String> source) {
+        Builder builder = new Builder();
+        for (String word : source) {
+            builder.add(word);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Accumulates distinct words one at a time, so a loader can stream a
+     * word list straight into a dictionary.
+     */
+    static final class Builder {
+        private String[] words = new String[64];
+        private int[] table = new int[128];
+        private int size;
+
+        /**
+         * Adds the word unless it is already present. Returns its ID.
+         */
+        int add(String word) {
+            int mask = table.length - 1;
+            int slot = mix(word.hashCode()) & mask;
+            while (true) {
+                int entry = table[slot];
+                if (entry == 0) {
+                    break;
+                }
+                if (words[entry - 1].equals(word)) {
+                    return entry - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            if (size == words.length) {
+                words = Arrays.copyOf(words, size * 2);
+            }
+            words[size] = word;
+            table[slot] = ++size;
+            if (size * 3 > table.length * 2) {
+                rehash(table.length * 2);
+            }
+            return size - 1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        WordDictionary build() {
+            // Trim to a table between 1.5x and 3x the word count
+            int capacity = Integer.highestOneBit(Math.max(4, size + size / 2)) << 1;
+            String[] finalWords = Arrays.copyOf(words, size);
+            return new WordDictionary(finalWords, buildTable(finalWords, size, capacity));
+        }
+
+        private void rehash(int capacity) {
+            table = buildTable(words, size, capacity);
+        }
+    }
+
+    private static int[] buildTable(String[] words, int size, int capacity) {
+        int[] table = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(words[id].hashCode()) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+        }
+        return table;
+    }
+
+    // Similar words have nearly consecutive String hash codes; the multiply
+    // scatters them so linear probing does not run into long clusters
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    int size() {
+        return words.length;
+    }
+
+    String word(int id) {
+        return words[id];
+    }
+
+    /**
+     * Returns the ID of the word, or -1 if it is not in the dictionary.
+     */
+    int idOf(String word) {
+        int slot = mix(word.hashCode()) & mask;
+        while (true) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            if (words[entry - 1].equals(word)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    List<String> words() {
+        return Collections.unmodifiableList(Arrays.asList(words));
+    }
+}
@@ -0,0 +1,112 @@
+package spellingpractice;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.text.Normalizer;
+
+/**
+ * Streams word list files into a WordDictionary, normalizing and
+ * de-duplicating entries as they are read. Only the distinct words are
+ * kept, so heap use is bounded by the vocabulary, not the file size.
+ *
+ * File format, one entry per line:
+ * <pre>
+ *   # comment
+ *   [name]          start a named list at level 1
+ *   [name:3]        start level 3 of a named list
+ *   word
+ * </pre>
+ * Words before the first section header belong to list "default", level 1.
+ */
+final class WordListLoader {
+    static final String DEFAULT_LIST = "default";
+    private static final String DEFAULT_RESOURCE = "words.txt";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private WordListLoader() {
+    }
+
+    /**
+     * The built-in word list shipped with the application.
+     */
+    static WordDictionary loadDefault() throws IOException {
+        try (InputStream in = WordListLoader.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+            if (in == null) {
+                throw new FileNotFoundException("Missing resource " + DEFAULT_RESOURCE);
+            }
+            return load(in, null, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Loads the words of one list (or every list if listName is null) up to
+     * and including maxLevel.
+     */
+    static WordDictionary load(Path file, String listName, int maxLevel) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return load(in, listName, maxLevel);
+        }
+    }
+
+    static WordDictionary load(InputStream in, String listName, int maxLevel) throws IOException {
+        WordDictionary.Builder builder = new WordDictionary.Builder();
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        String section = DEFAULT_LIST;
+        int level = 1;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String entry = normalize(line);
+            if (entry.isEmpty() || entry.startsWith("#")) {
+                continue;
+            }
+
+            if (entry.startsWith("[") && entry.endsWith("]")) {
+                String header = entry.substring(1, entry.length() - 1);
+                int colon = header.lastIndexOf(':');
+                if (colon >= 0) {
+                    section = header.substring(0, colon).trim();
+                    level = Integer.parseInt(header.substring(colon + 1).trim());
+                } else {
+                    section = header.trim();
+                    level = 1;
+                }
+                continue;
+            }
+
+            if ((listName == null || listName.equals(section)) && level <= maxLevel) {
+                builder.add(entry);
+            }
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Trims, collapses inner whitespace, strips a byte order mark, applies
+     * Unicode NFC and turns typographic apostrophes into plain ones, so
+     * "don’t" and "don't" are the same word.
+     */
+    static String normalize(String raw) {
+        String word = raw;
+        if (!word.isEmpty() && word.charAt(0) == '\uFEFF') {
+            word = word.substring(1);
+        }
+        word = word.trim();
+        if (word.isEmpty()) {
+            return word;
+        }
+        if (!Normalizer.isNormalized(word, Normalizer.Form.NFC)) {
+            word = Normalizer.normalize(word, Normalizer.Form.NFC);
+        }
+        word = word.replace('\u2019', '\'').replace('\u2018', '\'');
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.isWhitespace(word.charAt(i))) {
+                return word.replaceAll("\\s+", " ");
+            }
+        }
+        return word;
+    }
+}
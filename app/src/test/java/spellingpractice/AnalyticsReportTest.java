@@ -0,0 +1,101 @@
+package spellingpractice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AnalyticsReportTest {
+    private static final WordDictionary WORDS = WordDictionary.of(List.of("claw", "jaw", "dog"));
+    private static final int CLAW = 0;
+    private static final int JAW = 1;
+    private static final int DOG = 2;
+    // Monday 1 January 2024, midnight UTC
+    private static final long WEEK_ZERO = 1_704_067_200_000L;
+    private static final long WEEK = 7L * 24 * 60 * 60 * 1000;
+
+    @TempDir
+    Path directory;
+
+    private static AnalyticsReport.Row row(List<AnalyticsReport.Row> rows, String label) {
+        for (AnalyticsReport.Row row : rows) {
+            if (row.label.equals(label)) {
+                return row;
+            }
+        }
+        return null;
+    }
+
+    // Two learners over two weeks
+    private static AnalyticsReport report() {
+        AnswerHistory first = new AnswerHistory();
+        first.add(CLAW, WEEK_ZERO + 1000, 4000, false);
+        first.add(JAW, WEEK_ZERO + 2000, 2000, true);
+        first.add(CLAW, WEEK_ZERO + WEEK, 3000, true);
+        AnswerHistory second = new AnswerHistory();
+        second.add(CLAW, WEEK_ZERO + WEEK + 5000, 2000, true);
+        second.add(DOG, WEEK_ZERO + WEEK + 6000, 1000, false);
+        return AnalyticsReport.build(WORDS, List.of(first, second), ZoneOffset.UTC);
+    }
+
+    @Test
+    void addsUpEachWordAcrossLearners() {
+        AnalyticsReport report = report();
+
+        AnalyticsReport.Totals claw = row(report.words(), "claw").totals;
+        assertEquals(3, claw.attempts);
+        assertEquals(2, claw.correct);
+        // Wrong in the first week and right twice in the second
+        assertEquals(100.0, claw.trend(), 1e-9);
+        assertEquals(LocalDate.of(2024, 1, 8), row(report.words(), "claw").lastWeek);
+        assertEquals(3.0, claw.meanSeconds(), 1e-9);
+
+        assertEquals(5, report.overall().attempts);
+        assertEquals(3, report.overall().correct);
+        assertEquals(3, report.overall().words);
+        assertEquals(60.0, report.overall().accuracy(), 1e-9);
+    }
+
+    @Test
+    void groupsAnswersByWeekAndPattern() {
+        AnalyticsReport report = report();
+
+        assertEquals(2, report.weeks().size());
+        AnalyticsReport.Totals firstWeek = report.weeks().get(0).totals;
+        assertEquals(2, firstWeek.attempts);
+        assertEquals(2, firstWeek.words);
+        assertEquals(3, report.weeks().get(1).totals.attempts);
+
+        // "claw" and "jaw" both end in "aw"; "dog" shares no pattern with them
+        AnalyticsReport.Totals ending = row(report.patterns(), "-aw").totals;
+        assertEquals(2, ending.words);
+        assertEquals(4, ending.attempts);
+        assertEquals(3, ending.correct);
+        assertNull(row(report.patterns(), "-og"));
+    }
+
+    @Test
+    void anEmptyHistoryGivesAnEmptyReport() {
+        AnalyticsReport report = AnalyticsReport.build(WORDS, List.of(new AnswerHistory()), ZoneOffset.UTC);
+        assertEquals(0, report.overall().attempts);
+        assertTrue(report.words().isEmpty());
+        assertTrue(report.weeks().isEmpty());
+    }
+
+    @Test
+    void writesCsvFilesAndAnHtmlPage() throws IOException {
+        AnalyticsReport report = report();
+        report.writeCsv(directory);
+        report.writeHtml(directory.resolve(AnalyticsReport.HTML_FILE));
+
+        List<String> words = Files.readAllLines(directory.resolve(AnalyticsReport.WORDS_CSV));
+        assertEquals(4, words.size());
+        assertTrue(words.stream().anyMatch(line -> line.startsWith("claw,1,3,2,66.7,100.0,")), words.toString());
+        assertEquals(3, Files.readAllLines(directory.resolve(AnalyticsReport.WEEKS_CSV)).size());
+        assertTrue(Files.readString(directory.resolve(AnalyticsReport.HTML_FILE)).contains("<td>claw</td>"));
+    }
+}
@@ -0,0 +1,67 @@
+package spellingpractice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AnswerLogTest {
+    @TempDir
+    Path directory;
+
+    private static WordDictionary words(int count) {
+        WordDictionary.Builder builder = new WordDictionary.Builder();
+        for (int i = 0; i < count; i++) {
+            builder.add("word" + i);
+        }
+        return builder.build();
+    }
+
+    // Enough answers to seal two segments and leave some in the tail
+    private void assertRoundTrip(WordDictionary dictionary) throws IOException {
+        Random random = new Random(dictionary.size());
+        AnswerHistory written = new AnswerHistory();
+        long time = 1_700_000_000_000L;
+        for (int i = 0; i < 2 * AnswerLog.SEGMENT_ANSWERS + 123; i++) {
+            time += random.nextInt(30_000) - 1_000;
+            written.add(random.nextInt(dictionary.size()), time, random.nextInt(AnswerLog.MAX_LATENCY_MILLIS + 1),
+                random.nextBoolean());
+        }
+
+        try (AnswerLog log = new AnswerLog(directory, dictionary)) {
+            for (int from = 0; from < written.size(); from += 7) {
+                AnswerHistory batch = new AnswerHistory();
+                for (int i = from; i < Math.min(from + 7, written.size()); i++) {
+                    batch.add(written.word(i), written.time(i), written.latency(i), written.correct(i));
+                }
+                log.append(batch);
+            }
+        }
+        assertTrue(Files.exists(directory.resolve(AnswerLog.SEGMENT_DIRECTORY).resolve("segment-1.bin")));
+
+        WordDictionary.Builder readWords = new WordDictionary.Builder();
+        AnswerHistory read = AnswerLog.read(directory, readWords);
+        WordDictionary readDictionary = readWords.build();
+        assertEquals(written.size(), read.size());
+        for (int i = 0; i < written.size(); i++) {
+            assertEquals(dictionary.word(written.word(i)), readDictionary.word(read.word(i)), "word " + i);
+            assertEquals(written.time(i), read.time(i), "time " + i);
+            assertEquals(written.latency(i), read.latency(i), "latency " + i);
+            assertEquals(written.correct(i), read.correct(i), "outcome " + i);
+        }
+    }
+
+    @Test
+    void packsAndUnpacksWordsAcrossLongBoundaries() throws IOException {
+        // 11-bit word indices straddle the 64-bit words they are packed into
+        assertRoundTrip(words(1500));
+    }
+
+    @Test
+    void packsASingleWordTableInZeroBits() throws IOException {
+        assertRoundTrip(words(1));
+    }
+}
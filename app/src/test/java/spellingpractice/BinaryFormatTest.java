@@ -0,0 +1,49 @@
+package spellingpractice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BinaryFormatTest {
+    @TempDir
+    Path directory;
+
+    private Path writeSample() throws IOException {
+        Path file = directory.resolve("sample.bin");
+        BinaryFormat.Writer writer = new BinaryFormat.Writer("TEST", 1);
+        writer.putVarint(300);
+        writer.putString("necessary");
+        BinaryFormat.writeFile(file, writer);
+        return file;
+    }
+
+    @Test
+    void readsBackWhatWasWritten() throws IOException {
+        BinaryFormat.Reader reader = BinaryFormat.readFile(writeSample(), "TEST", 1);
+        assertEquals(300, reader.getVarint());
+        assertEquals("necessary", reader.getString());
+        assertFalse(reader.hasRemaining());
+    }
+
+    @Test
+    void rejectsAFileWhoseChecksumDoesNotMatch() throws IOException {
+        Path file = writeSample();
+        byte[] data = Files.readAllBytes(file);
+        data[7] ^= 1;
+        Files.write(file, data);
+
+        BinaryFormat.CorruptFileException e = assertThrows(BinaryFormat.CorruptFileException.class,
+            () -> BinaryFormat.readFile(file, "TEST", 1));
+        assertTrue(e.getMessage().contains("checksum"), e.getMessage());
+    }
+
+    @Test
+    void rejectsTheWrongMagicOrVersion() throws IOException {
+        Path file = writeSample();
+        assertThrows(BinaryFormat.CorruptFileException.class, () -> BinaryFormat.readFile(file, "NOPE", 1));
+        assertThrows(BinaryFormat.CorruptFileException.class, () -> BinaryFormat.readFile(file, "TEST", 2));
+    }
+}
@@ -0,0 +1,71 @@
+package spellingpractice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+class CompressedBitSetTest {
+    private static CompressedBitSet build(int[] values) {
+        CompressedBitSet.Builder builder = new CompressedBitSet.Builder();
+        for (int value : values) {
+            builder.add(value);
+        }
+        return builder.build();
+    }
+
+    private static int[] evens(int base, int count) {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = base + 2 * i;
+        }
+        return values;
+    }
+
+    private static void assertHoldsExactly(int[] values, CompressedBitSet set) {
+        assertEquals(values.length, set.cardinality());
+        List<Integer> seen = new ArrayList<>();
+        set.forEach(seen::add);
+        assertEquals(Arrays.stream(values).boxed().toList(), seen);
+        Set<Integer> expected = new HashSet<>(seen);
+        for (int value : values) {
+            assertTrue(set.contains(value), "missing " + value);
+            assertEquals(expected.contains(value + 1), set.contains(value + 1), "value " + (value + 1));
+        }
+    }
+
+    @Test
+    void switchesABlockToABitmapPastTheArrayLimit() {
+        // 4096 values still fit the sorted array; one more turns it into a bitmap
+        CompressedBitSet array = build(evens(0, 4096));
+        CompressedBitSet bitmap = build(evens(0, 4097));
+        assertTrue(array.sizeInBytes() < 2 * 4096 + 100, "array block: " + array.sizeInBytes());
+        assertTrue(bitmap.sizeInBytes() >= 8 * 1024, "bitmap block: " + bitmap.sizeInBytes());
+
+        assertHoldsExactly(evens(0, 4096), array);
+        assertHoldsExactly(evens(0, 4097), bitmap);
+    }
+
+    @Test
+    void keepsSparseAndDenseBlocksSideBySide() {
+        // A sparse block, a bitmap block and another sparse block
+        SortedSet<Integer> values = new TreeSet<>(List.of(3, 70_000, 70_001, 300_000));
+        for (int value : evens(1 << 17, 10_000)) {
+            values.add(value);
+        }
+
+        int[] ordered = values.stream().mapToInt(Integer::intValue).toArray();
+        assertHoldsExactly(ordered, build(ordered));
+    }
+
+    @Test
+    void ignoresRepeatsAndRejectsDecreasingValues() {
+        CompressedBitSet.Builder builder = new CompressedBitSet.Builder();
+        builder.add(5);
+        builder.add(5);
+        assertThrows(IllegalArgumentException.class, () -> builder.add(4));
+        assertEquals(1, builder.build().cardinality());
+        assertEquals(0, CompressedBitSet.EMPTY.cardinality());
+        assertFalse(CompressedBitSet.EMPTY.contains(0));
+    }
+}
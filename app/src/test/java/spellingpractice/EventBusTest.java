@@ -0,0 +1,139 @@
+package spellingpractice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.jupiter.api.Test;
+
+class EventBusTest {
+    @Test
+    void deliversEveryEventInOrderAcrossManyWrapArounds() {
+        EventBus bus = new EventBus();
+        List<Integer> words = new ArrayList<>();
+        int[] batches = new int[1];
+        bus.subscribe(new EventBus.Consumer() {
+            @Override
+            public void onEvent(EventBus.Event event) {
+                words.add(event.word);
+            }
+
+            @Override
+            public void endOfBatch() {
+                batches[0]++;
+            }
+        });
+
+        int total = 5 * EventBus.CAPACITY + 17;
+        for (int i = 0; i < total; i++) {
+            bus.publishAnswer(i, i, 0, true);
+        }
+        bus.awaitConsumers();
+        bus.close();
+
+        assertEquals(total, words.size());
+        for (int i = 0; i < total; i++) {
+            assertEquals(i, words.get(i));
+        }
+        assertTrue(batches[0] >= 1 && batches[0] <= total);
+    }
+
+    @Test
+    void publishingWaitsForAConsumerAWholeRingBehind() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        EventBus bus = new EventBus(executor);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> words = Collections.synchronizedList(new ArrayList<>());
+        bus.subscribe(event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            words.add(event.word);
+        });
+
+        long stallsBefore = Metrics.INSTANCE.getEventBusStallCount();
+        Thread publisher = new Thread(() -> {
+            for (int i = 0; i <= EventBus.CAPACITY; i++) {
+                bus.publishAnswer(i, i, 0, false);
+            }
+        });
+        publisher.start();
+        // The ring fills up and the last event has nowhere to go
+        publisher.join(300);
+        assertTrue(publisher.isAlive(), "publisher should wait for the stuck consumer");
+
+        release.countDown();
+        publisher.join(5_000);
+        assertFalse(publisher.isAlive());
+        bus.close();
+        executor.shutdown();
+
+        assertEquals(EventBus.CAPACITY + 1, words.size());
+        for (int i = 0; i < words.size(); i++) {
+            assertEquals(i, words.get(i));
+        }
+        assertTrue(Metrics.INSTANCE.getEventBusStallCount() > stallsBefore);
+    }
+
+    @Test
+    void handsSessionsOverUnchanged() {
+        EventBus bus = new EventBus();
+        List<int[]> sessions = new ArrayList<>();
+        bus.subscribe(event -> {
+            if (event.type == EventBus.Type.SESSION) {
+                sessions.add(event.session);
+            }
+        });
+        int[] session = {4, 8, 15};
+        bus.publishAnswer(1, 0, 0, true);
+        bus.publishSession(session);
+        bus.awaitConsumers();
+        bus.close();
+
+        assertEquals(1, sessions.size());
+        assertSame(session, sessions.get(0));
+    }
+
+    @Test
+    void publishingWhileClosingNeverFails() throws Exception {
+        for (int round = 0; round < 200; round++) {
+            EventBus bus = new EventBus();
+            List<Integer> words = Collections.synchronizedList(new ArrayList<>());
+            bus.subscribe(event -> words.add(event.word));
+            List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+            Thread publisher = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 50; i++) {
+                        bus.publishAnswer(i, i, 0, true);
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            publisher.start();
+            bus.close();
+            publisher.join();
+            bus.awaitConsumers();
+
+            assertEquals(List.of(), failures);
+            assertEquals(50, words.size());
+        }
+    }
+
+    @Test
+    void publishingAfterASharedExecutorIsShutDownIsHandledInline() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        EventBus bus = new EventBus(executor);
+        List<Integer> words = new ArrayList<>();
+        bus.subscribe(event -> words.add(event.word));
+        executor.shutdown();
+
+        bus.publishAnswer(7, 0, 0, true);
+        bus.awaitConsumers();
+        bus.close();
+
+        assertEquals(List.of(7), words);
+    }
+}
@@ -0,0 +1,130 @@
+package spellingpractice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.file.Path;
+import java.util.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LearnerServerTest {
+    private static final List<String> WORD_LIST = List.of(
+        "cat", "dog", "bird", "fish", "frog", "mouse", "horse", "sheep", "goat", "duck");
+
+    @TempDir
+    Path directory;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private LearnerServer server;
+    private int port;
+
+    private void start(LearnerServer learnerServer) throws IOException {
+        server = learnerServer;
+        port = server.start(0);
+    }
+
+    @AfterEach
+    void stop() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    // Sends the request and returns the status and the key=value lines of the body
+    private Map<String, String> send(String method, String pathAndQuery) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + pathAndQuery))
+            .method(method, HttpRequest.BodyPublishers.noBody())
+            .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        Map<String, String> fields = new HashMap<>();
+        fields.put("status", String.valueOf(response.statusCode()));
+        for (String line : response.body().split("\n")) {
+            int eq = line.indexOf('=');
+            if (eq > 0) {
+                fields.put(line.substring(0, eq), line.substring(eq + 1));
+            }
+        }
+        return fields;
+    }
+
+    @Test
+    void runsASessionToTheEnd() throws IOException, InterruptedException {
+        start(new LearnerServer(directory, WordDictionary.of(WORD_LIST)));
+
+        Map<String, String> session = send("POST", "/session?learner=amy");
+        assertEquals("200", session.get("status"));
+        assertEquals(String.valueOf(WORD_LIST.size()), session.get("total"));
+        assertTrue(WORD_LIST.contains(session.get("word")));
+
+        Map<String, String> answer = session;
+        for (int i = 0; i < WORD_LIST.size(); i++) {
+            answer = send("POST", "/answer?learner=amy&correct=" + (i % 3 == 0 ? "false" : "true"));
+            assertEquals("200", answer.get("status"));
+        }
+        assertEquals("true", answer.get("complete"));
+        assertEquals("4", answer.get("wrong"));
+        assertEquals("6", answer.get("correct"));
+
+        Map<String, String> stats = send("GET", "/stats");
+        assertEquals("1", stats.get("sessionsCompleted"));
+        assertEquals("10", stats.get("answers"));
+        assertEquals("4", stats.get("mistakes"));
+    }
+
+    @Test
+    void rejectsBadRequests() throws IOException, InterruptedException {
+        start(new LearnerServer(directory, WordDictionary.of(WORD_LIST)));
+
+        assertEquals("400", send("POST", "/session?learner=../amy").get("status"));
+        assertEquals("400", send("POST", "/answer?learner=amy&correct=true").get("status"));
+        send("POST", "/session?learner=amy");
+        assertEquals("400", send("POST", "/answer?learner=amy&correct=maybe").get("status"));
+    }
+
+    @Test
+    void evictedLearnersAreWrittenBackAndLoadedAgain() throws IOException, InterruptedException {
+        start(new LearnerServer(directory, WordDictionary.of(WORD_LIST), 1));
+
+        String missed = send("POST", "/session?learner=amy").get("word");
+        for (int i = 0; i < WORD_LIST.size(); i++) {
+            send("POST", "/answer?learner=amy&correct=" + (i == 0 ? "false" : "true"));
+        }
+        send("POST", "/session?learner=ben");
+        assertEquals("1", send("GET", "/stats").get("learnersEvicted"));
+
+        // Amy's mistake was written back when she was evicted
+        PracticeEngine amy = new PracticeEngine(WORD_LIST, directory.resolve("amy"), new Random());
+        amy.load();
+        assertEquals(1, amy.getMistakeCount(missed));
+        amy.close();
+
+        // Ben is mid-session, so he stays loaded next to Amy
+        assertEquals("200", send("POST", "/session?learner=amy").get("status"));
+        Map<String, String> stats = send("GET", "/stats");
+        assertEquals("1", stats.get("learnersEvicted"));
+        assertEquals("2", stats.get("learners"));
+    }
+
+    @Test
+    void learnersInTheMiddleOfASessionAreNotEvicted() throws IOException, InterruptedException {
+        start(new LearnerServer(directory, WordDictionary.of(WORD_LIST), 1));
+
+        send("POST", "/session?learner=amy");
+        send("POST", "/session?learner=ben");
+        assertEquals("0", send("GET", "/stats").get("learnersEvicted"));
+        assertEquals("200", send("POST", "/answer?learner=amy&correct=true").get("status"));
+        assertEquals("200", send("POST", "/answer?learner=ben&correct=true").get("status"));
+
+        // Once Amy finishes she can make room again
+        for (int i = 1; i < WORD_LIST.size(); i++) {
+            send("POST", "/answer?learner=amy&correct=true");
+        }
+        send("POST", "/session?learner=cal");
+        assertEquals("1", send("GET", "/stats").get("learnersEvicted"));
+        assertEquals("200", send("POST", "/answer?learner=ben&correct=true").get("status"));
+    }
+}
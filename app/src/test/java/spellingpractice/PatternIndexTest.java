@@ -0,0 +1,95 @@
+package spellingpractice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+class PatternIndexTest {
+    private static final WordDictionary WORDS = WordDictionary.of(
+        List.of("claw", "straw", "jaw", "awful", "dog", "clock", "sock", "kite"));
+
+    private static long[] weights(PatternIndex.FamilyBoost boost) {
+        int[] pool = new int[WORDS.size()];
+        for (int id = 0; id < pool.length; id++) {
+            pool[id] = id;
+        }
+        long[] weights = new long[pool.length];
+        boost.apply(pool, pool.length, weights);
+        return weights;
+    }
+
+    @Test
+    void marksTheStartAndEndOfEachWord() {
+        List<String> patterns = new ArrayList<>();
+        PatternIndex.forEachPattern("claw", patterns::add);
+        assertEquals(List.of("^c", "cl", "la", "aw", "w$", "^cl", "cla", "law", "aw$"), patterns);
+
+        PatternIndex index = PatternIndex.build(WORDS);
+        assertEquals(4, index.wordsWith("aw").cardinality());
+        CompressedBitSet endings = index.wordsWith("aw$");
+        assertEquals(3, endings.cardinality());
+        assertFalse(endings.contains(WORDS.idOf("awful")));
+        assertEquals(0, index.wordsWith("zz").cardinality());
+    }
+
+    @Test
+    void indexesOverOneDictionaryShareThePostingsButNotTheWeakness() {
+        PatternIndex first = PatternIndex.build(WORDS);
+        PatternIndex second = PatternIndex.build(WORDS);
+        assertSame(first.wordsWith("aw"), second.wordsWith("aw"));
+        assertNotSame(first.wordsWith("aw"), PatternIndex.build(WordDictionary.of(List.of("jaw"))).wordsWith("aw"));
+
+        first.recordMistake(WORDS.idOf("claw"));
+        assertTrue(first.boost().size() > 0);
+        assertEquals(0, second.boost().size());
+    }
+
+    @Test
+    void aMistakeBoostsTheWordsFamily() {
+        PatternIndex index = PatternIndex.build(WORDS);
+        assertEquals(0, index.boost().size());
+
+        assertTrue(index.recordMistake(WORDS.idOf("claw")));
+        long[] weights = weights(index.boost());
+        assertTrue(weights[WORDS.idOf("jaw")] > 0);
+        assertTrue(weights[WORDS.idOf("straw")] > 0);
+        // The word itself has every one of the patterns
+        assertTrue(weights[WORDS.idOf("claw")] > weights[WORDS.idOf("jaw")]);
+        assertEquals(0, weights[WORDS.idOf("dog")]);
+        assertEquals(0, weights[WORDS.idOf("kite")]);
+    }
+
+    @Test
+    void theBoostFadesAwaySessionBySession() {
+        PatternIndex index = PatternIndex.build(WORDS);
+        index.recordMistake(WORDS.idOf("sock"));
+        long before = weights(index.boost())[WORDS.idOf("clock")];
+
+        index.decay();
+        long after = weights(index.boost())[WORDS.idOf("clock")];
+        assertTrue(after > 0 && after < before, before + " then " + after);
+
+        for (int i = 0; i < 4; i++) {
+            index.decay();
+        }
+        assertEquals(0, index.boost().size());
+    }
+
+    @Test
+    void listsTheMostBoostedWordsFirst() {
+        PatternIndex index = PatternIndex.build(WORDS);
+        index.recordMistake(WORDS.idOf("jaw"));
+        PatternIndex.FamilyBoost boost = index.boost();
+        long[] weights = weights(boost);
+
+        int[] ordered = boost.strongestFirst();
+        assertEquals(boost.size(), ordered.length);
+        assertEquals(WORDS.idOf("jaw"), ordered[0]);
+        for (int i = 1; i < ordered.length; i++) {
+            long previous = weights[ordered[i - 1]];
+            long current = weights[ordered[i]];
+            assertTrue(previous > current || previous == current && ordered[i - 1] < ordered[i]);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package spellingpractice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PracticeEngineTest {
+    @TempDir
+    Path directory;
+
+    private static List<String> words(int count) {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            words.add(String.format("word%03d", i));
+        }
+        return words;
+    }
+
+    // Answers every word, getting the ones in wrong wrong
+    private static void practice(PracticeEngine engine, Set<String> wrong) {
+        while (!engine.isSessionComplete()) {
+            if (wrong.contains(engine.getCurrentWord())) {
+                engine.markWrong();
+            } else {
+                engine.markCorrect();
+            }
+        }
+        engine.completeSession();
+    }
+
+    @Test
+    void sessionsHaveDistinctWordsFromTheList() {
+        List<String> words = words(100);
+        PracticeEngine engine = new PracticeEngine(words, directory, new Random(1));
+        assertTrue(engine.load());
+        engine.startNewSession();
+
+        List<String> session = engine.getSessionWords();
+        assertEquals(PracticeEngine.WORDS_PER_SESSION, session.size());
+        assertEquals(session.size(), new HashSet<>(session).size());
+        assertTrue(words.containsAll(session));
+        engine.close();
+    }
+
+    @Test
+    void completedSessionsAreLeftOutOfTheNextTwo() {
+        PracticeEngine engine = new PracticeEngine(words(100), directory, new Random(2));
+        engine.load();
+        List<List<String>> sessions = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            engine.startNewSession();
+            sessions.add(new ArrayList<>(engine.getSessionWords()));
+            practice(engine, Set.of());
+        }
+        engine.close();
+
+        for (int i = PracticeEngine.SESSIONS_TO_AVOID; i < sessions.size(); i++) {
+            for (int back = 1; back <= PracticeEngine.SESSIONS_TO_AVOID; back++) {
+                assertTrue(Collections.disjoint(sessions.get(i), sessions.get(i - back)),
+                    "session " + i + " repeats words from session " + (i - back));
+            }
+        }
+    }
+
+    @Test
+    void aShortListFillsEachSessionWithEveryWord() {
+        List<String> words = words(12);
+        PracticeEngine engine = new PracticeEngine(words, directory, new Random(3));
+        engine.load();
+        for (int i = 0; i < 3; i++) {
+            engine.startNewSession();
+            assertEquals(new HashSet<>(words), new HashSet<>(engine.getSessionWords()));
+            practice(engine, Set.of());
+        }
+        engine.close();
+    }
+
+    @Test
+    void mistakesAndRecentSessionsSurviveARestart() {
+        List<String> words = words(100);
+        PracticeEngine engine = new PracticeEngine(words, directory, new Random(4));
+        engine.load();
+        engine.startNewSession();
+        List<String> first = new ArrayList<>(engine.getSessionWords());
+        Set<String> wrong = Set.of(first.get(0), first.get(1));
+        practice(engine, wrong);
+        engine.close();
+
+        PracticeEngine reloaded = new PracticeEngine(words, directory, new Random(5));
+        reloaded.load();
+        assertEquals(1, reloaded.getMistakeCount(first.get(0)));
+        assertEquals(1, reloaded.getMistakeCount(first.get(1)));
+        assertEquals(0, reloaded.getMistakeCount(first.get(2)));
+        reloaded.startNewSession();
+        assertTrue(Collections.disjoint(first, reloaded.getSessionWords()));
+        reloaded.close();
+    }
+
+    @Test
+    void unreadableProgressFailsTheLoad() throws IOException {
+        // Reading a directory fails however the files are permitted
+        Files.createDirectory(directory.resolve(ProgressStore.SNAPSHOT_FILE));
+        PracticeEngine engine = new PracticeEngine(words(100), directory, new Random(12));
+        assertThrows(UncheckedIOException.class, engine::load);
+        engine.close();
+    }
+
+    @Test
+    void theFootprintCountsTheRankingOnceItIsBuilt() {
+        PracticeEngine engine = new PracticeEngine(words(100), directory, new Random(13));
+        assertEquals(0, engine.statisticsFootprintBytes());
+        engine.load();
+        long loaded = engine.statisticsFootprintBytes();
+        assertTrue(loaded > 0);
+        engine.getRanking();
+        assertTrue(engine.statisticsFootprintBytes() > loaded);
+        engine.close();
+    }
+
+    @Test
+    void theRankingCanBeBuiltWhileLoading() {
+        PracticeEngine engine = new PracticeEngine(words(100), directory, new Random(14));
+        engine.setRankingAtLoad(true);
+        engine.load();
+        long loaded = engine.statisticsFootprintBytes();
+        RankingIndex ranking = engine.getRanking();
+        assertEquals(100, ranking.size());
+        assertEquals(loaded, engine.statisticsFootprintBytes());
+
+        engine.startNewSession();
+        String missed = engine.getCurrentWord();
+        engine.markWrong();
+        assertSame(ranking, engine.getRanking());
+        assertEquals(missed, ranking.word(ranking.wordAtRank(0)));
+        engine.close();
+    }
+
+    @Test
+    void prefetchedSessionsStillLeaveOutRecentWords() {
+        ExecutorService prefetch = Executors.newSingleThreadExecutor();
+        try {
+            PracticeEngine engine = new PracticeEngine(words(100), directory, new Random(6));
+            engine.setSessionPrefetch(prefetch);
+            engine.load();
+            List<List<String>> sessions = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                engine.startNewSession();
+                List<String> session = new ArrayList<>(engine.getSessionWords());
+                sessions.add(session);
+                assertEquals(PracticeEngine.WORDS_PER_SESSION, new HashSet<>(session).size());
+                // Mistakes change the weights the prefetched session was drawn with
+                practice(engine, Set.of(session.get(i), session.get(i + 1)));
+            }
+            engine.close();
+
+            for (int i = PracticeEngine.SESSIONS_TO_AVOID; i < sessions.size(); i++) {
+                assertTrue(Collections.disjoint(sessions.get(i), sessions.get(i - 1)));
+                assertTrue(Collections.disjoint(sessions.get(i), sessions.get(i - 2)));
+            }
+        } finally {
+            prefetch.shutdown();
+        }
+    }
+
+    @Test
+    void familyBoostRebuildsThePrefetchOncePerSession() {
+        int[] prefetches = new int[1];
+        Executor counting = task -> {
+            prefetches[0]++;
+            task.run();
+        };
+        PracticeEngine engine = new PracticeEngine(words(100), directory, new Random(15));
+        engine.setFamilyBoost(true);
+        engine.setSessionPrefetch(counting);
+        engine.load();
+        engine.startNewSession();
+        int before = prefetches[0];
+        while (!engine.isSessionComplete()) {
+            engine.markWrong();
+        }
+        assertEquals(before, prefetches[0]);
+
+        engine.completeSession();
+        assertEquals(before + 1, prefetches[0]);
+        // The rebuilt session is taken, and only the one after it is built
+        long builds = Metrics.INSTANCE.getSessionBuildCount();
+        engine.startNewSession();
+        assertEquals(builds + 1, Metrics.INSTANCE.getSessionBuildCount());
+        engine.close();
+    }
+
+    // Two spaced sessions a day for a fortnight, as sorted word lists. Each
+    // word is answered at its own time of day, so no two words fall due at
+    // once, and a session starts when the one before it completes.
+    private static List<List<String>> spacedSessions(Path directory, ExecutorService prefetch) throws IOException {
+        long[] now = {1_700_000_000_000L};
+        PracticeEngine engine = new PracticeEngine(words(100), Files.createDirectories(directory), new Random(9));
+        engine.setSelectionMode(PracticeEngine.SelectionMode.SPACED_REPETITION);
+        engine.setClock(() -> now[0]);
+        if (prefetch != null) {
+            engine.setSessionPrefetch(prefetch);
+        }
+        engine.load();
+        List<List<String>> sessions = new ArrayList<>();
+        for (int session = 0; session < 28; session++) {
+            long start = 1_700_000_000_000L + session / 2 * 24L * 60 * 60 * 1000 + session % 2 * 2_000_000;
+            engine.startNewSession();
+            List<String> words = new ArrayList<>(engine.getSessionWords());
+            Collections.sort(words);
+            sessions.add(words);
+            while (!engine.isSessionComplete()) {
+                String word = engine.getCurrentWord();
+                now[0] = start + Math.floorMod(word.hashCode(), 1000) * 1000L;
+                if (Math.floorMod(word.hashCode() + session, 4) == 0) {
+                    engine.markWrong();
+                } else {
+                    engine.markCorrect();
+                }
+            }
+            now[0] = start + 1_000_000;
+            engine.completeSession();
+        }
+        engine.close();
+        return sessions;
+    }
+
+    @Test
+    void prefetchingSpacedSessionsPicksTheSameWords() throws Exception {
+        ExecutorService prefetch = Executors.newSingleThreadExecutor();
+        try {
+            List<List<String>> direct = spacedSessions(directory.resolve("direct"), null);
+            List<List<String>> prefetched = spacedSessions(directory.resolve("prefetched"), prefetch);
+            assertEquals(direct, prefetched);
+        } finally {
+            prefetch.shutdown();
+        }
+    }
+
+    @Test
+    void switchingToSpacedRepetitionStartsWithTheMissedWords() {
+        List<String> words = words(100);
+        PracticeEngine weighted = new PracticeEngine(words, directory, new Random(10));
+        weighted.load();
+        weighted.startNewSession();
+        List<String> first = new ArrayList<>(weighted.getSessionWords());
+        practice(weighted, Set.of(first.get(0), first.get(1)));
+        // Two more sessions take the first one out of the recency window
+        for (int i = 0; i < PracticeEngine.SESSIONS_TO_AVOID; i++) {
+            weighted.startNewSession();
+            practice(weighted, Set.of());
+        }
+        weighted.close();
+
+        PracticeEngine spaced = new PracticeEngine(words, directory, new Random(11));
+        spaced.setSelectionMode(PracticeEngine.SelectionMode.SPACED_REPETITION);
+        spaced.load();
+        spaced.startNewSession();
+        assertTrue(spaced.getSessionWords().containsAll(Set.of(first.get(0), first.get(1))));
+        spaced.close();
+    }
+
+    @Test
+    void answersGivenWhileLoadingAreKept() throws Exception {
+        List<String> words = words(100);
+        PracticeEngine earlier = new PracticeEngine(words, directory, new Random(7));
+        earlier.load();
+        earlier.startNewSession();
+        String missedEarlier = earlier.getCurrentWord();
+        earlier.markWrong();
+        earlier.close();
+
+        // The loader waits until the first answer is in
+        CountDownLatch answered = new CountDownLatch(1);
+        ExecutorService loader = Executors.newSingleThreadExecutor();
+        loader.execute(() -> {
+            try {
+                answered.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        BlockingQueue<Runnable> engineThread = new LinkedBlockingQueue<>();
+        try {
+            PracticeEngine engine = new PracticeEngine(words, directory, new Random(8));
+            CompletableFuture<Boolean> loaded = engine.loadInBackground(loader, engineThread::add);
+            assertTrue(engine.isLoading());
+            engine.startNewSession();
+            String first = engine.getCurrentWord();
+            engine.markWrong();
+            answered.countDown();
+
+            engineThread.take().run();
+            assertTrue(loaded.get(10, TimeUnit.SECONDS));
+            assertFalse(engine.isLoading());
+            assertEquals(first, engine.getSessionWords().get(0));
+            assertEquals(PracticeEngine.WORDS_PER_SESSION, new HashSet<>(engine.getSessionWords()).size());
+            if (first.equals(missedEarlier)) {
+                assertEquals(2, engine.getMistakeCount(first));
+            } else {
+                assertEquals(1, engine.getMistakeCount(first));
+                assertEquals(1, engine.getMistakeCount(missedEarlier));
+            }
+            engine.close();
+        } finally {
+            loader.shutdown();
+        }
+    }
+}
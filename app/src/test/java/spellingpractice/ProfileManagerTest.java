@@ -0,0 +1,115 @@
+package spellingpractice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProfileManagerTest {
+    private static final WordDictionary WORDS = WordDictionary.of(
+        List.of("cat", "dog", "bird", "fish", "frog", "mouse", "horse", "sheep"));
+
+    @TempDir
+    Path root;
+
+    private ProfileManager manager() {
+        return new ProfileManager(root, WORDS, PracticeEngine.SESSIONS_TO_AVOID,
+            PracticeEngine.SelectionMode.WEIGHTED_RANDOM, null);
+    }
+
+    // Gets the first word of a new session wrong and returns it
+    private static String missOne(PracticeEngine engine) {
+        engine.startNewSession();
+        String word = engine.getCurrentWord();
+        engine.markWrong();
+        return word;
+    }
+
+    @Test
+    void listsTheDefaultProfileFirstAndTheRestByName() throws IOException {
+        try (ProfileManager profiles = manager()) {
+            profiles.open("bob");
+            profiles.open("Alice");
+            assertEquals(List.of(ProfileManager.DEFAULT_PROFILE, "Alice", "bob"), profiles.profiles());
+            assertEquals("Alice", profiles.active());
+            assertTrue(Files.isDirectory(root.resolve(ProfileManager.PROFILES_DIRECTORY).resolve("bob")));
+        }
+    }
+
+    @Test
+    void rejectsNamesThatAreNotPlainDirectoryNames() {
+        try (ProfileManager profiles = manager()) {
+            assertThrows(IllegalArgumentException.class, () -> profiles.open("../escape"));
+            assertThrows(IllegalArgumentException.class, () -> profiles.open(""));
+        }
+    }
+
+    @Test
+    void eachProfileKeepsItsOwnProgress() throws IOException {
+        try (ProfileManager profiles = manager()) {
+            PracticeEngine alice = profiles.open("Alice");
+            String missed = missOne(alice);
+            PracticeEngine bob = profiles.open("Bob");
+
+            assertEquals(0, bob.getMistakeCount(missed));
+            assertSame(alice, profiles.open("Alice"));
+            assertEquals(1, alice.getMistakeCount(missed));
+        }
+    }
+
+    @Test
+    void closesTheLeastRecentlyUsedProfilesAndLoadsThemAgainLater() throws IOException {
+        try (ProfileManager profiles = manager()) {
+            PracticeEngine first = profiles.open("Learner0");
+            String missed = missOne(first);
+            PracticeEngine second = profiles.open("Learner1");
+            for (int i = 2; i <= ProfileManager.MAX_RESIDENT; i++) {
+                profiles.open("Learner" + i);
+                // Using a profile again keeps it in the cache
+                assertSame(second, profiles.open("Learner1"));
+            }
+
+            PracticeEngine reopened = profiles.open("Learner0");
+            assertNotSame(first, reopened);
+            assertEquals(1, reopened.getMistakeCount(missed));
+            assertSame(second, profiles.open("Learner1"));
+        }
+    }
+
+    @Test
+    void namesDifferingOnlyInCaseOpenTheSameProfile() throws IOException {
+        String missed;
+        try (ProfileManager profiles = manager()) {
+            PracticeEngine alice = profiles.open("Alice");
+            missed = missOne(alice);
+            assertSame(alice, profiles.open("ALICE"));
+            assertSame(profiles.open("Default"), profiles.open("default"));
+        }
+        try (ProfileManager profiles = manager()) {
+            PracticeEngine alice = profiles.open("alice");
+            assertEquals("Alice", profiles.active());
+            assertEquals(1, alice.getMistakeCount(missed));
+            assertEquals(List.of(ProfileManager.DEFAULT_PROFILE, "Alice"), profiles.profiles());
+        }
+    }
+
+    @Test
+    void anEvictedProfileOpenedInTheBackgroundLoadsAfterItIsClosed() throws Exception {
+        try (ProfileManager profiles = manager()) {
+            String missed = missOne(profiles.open("Learner0"));
+            for (int i = 1; i <= ProfileManager.MAX_RESIDENT; i++) {
+                profiles.open("Learner" + i);
+            }
+
+            BlockingQueue<Runnable> engineThread = new LinkedBlockingQueue<>();
+            PracticeEngine reopened = profiles.openInBackground("Learner0", engineThread::add);
+            engineThread.take().run();
+            assertTrue(reopened.whenLoaded().get(10, TimeUnit.SECONDS));
+            assertEquals(1, reopened.getMistakeCount(missed));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package spellingpractice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProgressStoreTest {
+    private static final WordDictionary WORDS = WordDictionary.of(List.of("cat", "dog", "bird", "fish"));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysTheJournalOnLoad() throws IOException {
+        try (ProgressStore store = new ProgressStore(directory, WORDS)) {
+            store.load();
+            store.recordMistake(0);
+            store.recordMistake(2);
+            store.recordMistake(2);
+        }
+        long journalSize = Files.size(directory.resolve(ProgressStore.JOURNAL_FILE));
+
+        try (ProgressStore store = new ProgressStore(directory, WORDS)) {
+            store.load();
+            assertArrayEquals(new int[] {1, 0, 2, 0}, store.copyCounts());
+        }
+        // A short journal is kept as it is rather than compacted
+        assertEquals(journalSize, Files.size(directory.resolve(ProgressStore.JOURNAL_FILE)));
+    }
+
+    @Test
+    void cutsOffATornRecordAndKeepsAppending() throws IOException {
+        try (ProgressStore store = new ProgressStore(directory, WORDS)) {
+            store.load();
+            store.recordMistake(1);
+            store.recordMistake(3);
+        }
+        Path journal = directory.resolve(ProgressStore.JOURNAL_FILE);
+        byte[] data = Files.readAllBytes(journal);
+        // A crash in the middle of the last record
+        Files.write(journal, Arrays.copyOf(data, data.length - 2));
+
+        try (ProgressStore store = new ProgressStore(directory, WORDS)) {
+            store.load();
+            assertArrayEquals(new int[] {0, 1, 0, 0}, store.copyCounts());
+            store.recordMistake(0);
+        }
+        try (ProgressStore store = new ProgressStore(directory, WORDS)) {
+            store.load();
+            assertArrayEquals(new int[] {1, 1, 0, 0}, store.copyCounts());
+        }
+    }
+
+    @Test
+    void setsACorruptSnapshotAsideInsteadOfReadingIt() throws IOException {
+        try (ProgressStore store = new ProgressStore(directory, WORDS)) {
+            store.load();
+            store.recordMistake(0);
+            store.compact();
+        }
+        Path snapshot = directory.resolve(ProgressStore.SNAPSHOT_FILE);
+        byte[] data = Files.readAllBytes(snapshot);
+        data[data.length - 6] ^= 0x40;
+        Files.write(snapshot, data);
+
+        try (ProgressStore store = new ProgressStore(directory, WORDS)) {
+            store.load();
+            assertArrayEquals(new int[4], store.copyCounts());
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.anyMatch(file -> file.getFileName().toString()
+                .startsWith(ProgressStore.SNAPSHOT_FILE + ".corrupt-")));
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package spellingpractice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProgressSyncTest {
+    private static final List<String> WORD_LIST = List.of("cat", "dog", "bird", "fish");
+    private static final WordDictionary WORDS = WordDictionary.of(WORD_LIST);
+
+    @TempDir
+    Path root;
+
+    private ProgressSync device(String name) throws IOException {
+        Path dataDirectory = Files.createDirectories(root.resolve(name));
+        ProgressSync sync = new ProgressSync(dataDirectory, root.resolve("shared"), WORDS);
+        sync.load();
+        return sync;
+    }
+
+    // Exports the local counts, of which the changed words went up since the last export
+    private static void export(ProgressSync sync, int[] counts, int... changed) throws IOException {
+        for (int id : changed) {
+            sync.recordLocalMistake(id);
+        }
+        sync.export(id -> counts[id]);
+    }
+
+    private long segments() throws IOException {
+        try (Stream<Path> files = Files.walk(root.resolve("shared"))) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    @Test
+    void eachDeviceSeesTheOthersMistakesAndSessions() throws IOException {
+        ProgressSync laptop = device("laptop");
+        ProgressSync tablet = device("tablet");
+
+        laptop.queueSession(new int[] {0, 1});
+        export(laptop, new int[] {2, 0, 0, 0});
+        export(tablet, new int[] {1, 0, 3, 0});
+
+        List<int[]> fromLaptop = tablet.importNew();
+        assertArrayEquals(new int[] {2, 0, 0, 0}, tablet.remoteCounts());
+        assertEquals(1, fromLaptop.size());
+        assertArrayEquals(new int[] {0, 1}, fromLaptop.get(0));
+        assertTrue(laptop.importNew().isEmpty());
+        assertArrayEquals(new int[] {1, 0, 3, 0}, laptop.remoteCounts());
+
+        // Nothing new to read the second time round
+        assertTrue(tablet.importNew().isEmpty());
+        assertArrayEquals(new int[] {2, 0, 0, 0}, tablet.remoteCounts());
+    }
+
+    @Test
+    void laterExportsOnlyAddTheNewMistakes() throws IOException {
+        ProgressSync laptop = device("laptop");
+        export(laptop, new int[] {2, 0, 0, 0});
+        export(laptop, new int[] {2, 0, 0, 0});
+        assertEquals(1, segments());
+        export(laptop, new int[] {3, 1, 0, 0}, 0, 1);
+        assertEquals(2, segments());
+
+        ProgressSync tablet = device("tablet");
+        tablet.importNew();
+        assertArrayEquals(new int[] {3, 1, 0, 0}, tablet.remoteCounts());
+    }
+
+    @Test
+    void aLostStateIsReadAgainFromTheSyncFolder() throws IOException {
+        ProgressSync laptop = device("laptop");
+        export(laptop, new int[] {1, 1, 0, 0});
+        ProgressSync tablet = device("tablet");
+        export(tablet, new int[] {0, 0, 0, 4});
+
+        Files.delete(root.resolve("laptop").resolve(ProgressSync.STATE_FILE));
+        ProgressSync restarted = device("laptop");
+        restarted.importNew();
+        assertArrayEquals(new int[] {0, 0, 0, 4}, restarted.remoteCounts());
+        // Its own segment counts as exported, so nothing is written twice
+        export(restarted, new int[] {1, 1, 0, 0});
+        assertEquals(2, segments());
+    }
+
+    @Test
+    void anIncompleteSegmentIsReadOnALaterMerge() throws IOException {
+        ProgressSync laptop = device("laptop");
+        export(laptop, new int[] {0, 2, 0, 0});
+        Path segment;
+        try (Stream<Path> files = Files.walk(root.resolve("shared"))) {
+            segment = files.filter(Files::isRegularFile).findFirst().get();
+        }
+        byte[] complete = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(complete, complete.length - 3));
+
+        ProgressSync tablet = device("tablet");
+        tablet.importNew();
+        assertArrayEquals(new int[4], tablet.remoteCounts());
+
+        Files.write(segment, complete);
+        tablet.importNew();
+        assertArrayEquals(new int[] {0, 2, 0, 0}, tablet.remoteCounts());
+    }
+
+    @Test
+    void aNewDeviceStartsFromTheLatestRollup() throws IOException {
+        ProgressSync laptop = device("laptop");
+        int[] counts = new int[WORD_LIST.size()];
+        for (int i = 0; i < ProgressSync.ROLLUP_EVERY + 3; i++) {
+            counts[i % counts.length]++;
+            laptop.queueSession(new int[] {i % counts.length});
+            export(laptop, counts, i % counts.length);
+        }
+        Path device;
+        try (Stream<Path> devices = Files.list(root.resolve("shared").resolve(ProgressSync.DEVICES_DIRECTORY))) {
+            device = devices.findFirst().get();
+        }
+        assertTrue(Files.exists(device.resolve("rollup-" + ProgressSync.ROLLUP_EVERY + ".bin")));
+        // Only the rollup and the segments after it are needed
+        for (int i = 0; i < ProgressSync.ROLLUP_EVERY; i++) {
+            Files.delete(device.resolve("segment-" + i + ".bin"));
+        }
+
+        ProgressSync tablet = device("tablet");
+        List<int[]> sessions = tablet.importNew();
+        assertArrayEquals(counts, tablet.remoteCounts());
+        assertEquals(ProgressSync.ROLLUP_SESSIONS + 3, sessions.size());
+    }
+
+    // The sync words followed by enough others for three spaced sessions
+    private static List<String> longWordList() {
+        List<String> words = new ArrayList<>(WORD_LIST);
+        for (int i = words.size(); i < 3 * PracticeEngine.WORDS_PER_SESSION; i++) {
+            words.add("word" + i);
+        }
+        return words;
+    }
+
+    private PracticeEngine spacedEngine(String name, long[] now) throws IOException {
+        PracticeEngine engine = new PracticeEngine(longWordList(), Files.createDirectories(root.resolve(name)),
+            new Random(2));
+        engine.setSyncDirectory(root.resolve("shared"));
+        engine.setSelectionMode(PracticeEngine.SelectionMode.SPACED_REPETITION);
+        engine.setClock(() -> now[0]);
+        // Otherwise the words of the last session are held back
+        engine.setSessionsToAvoid(0);
+        engine.load();
+        return engine;
+    }
+
+    @Test
+    void mistakesMadeElsewhereMakeAScheduledWordDueAgain() throws IOException {
+        long[] now = {1_700_000_000_000L};
+        // New words come in list order, so the first session has the sync words
+        PracticeEngine tablet = spacedEngine("tablet", now);
+        tablet.startNewSession();
+        assertTrue(tablet.getSessionWords().containsAll(WORD_LIST));
+        while (!tablet.isSessionComplete()) {
+            tablet.markCorrect();
+        }
+        tablet.completeSession();
+        tablet.close();
+
+        export(device("laptop"), new int[] {0, 0, 3, 0});
+
+        // Without the mistake elsewhere nothing would be due, and new words would fill the session
+        now[0] += 60_000;
+        PracticeEngine reloaded = spacedEngine("tablet", now);
+        reloaded.startNewSession();
+        assertTrue(reloaded.getSessionWords().contains("bird"));
+        assertFalse(reloaded.getSessionWords().contains("cat"));
+        reloaded.close();
+    }
+
+    @Test
+    void anEngineCountsMistakesMadeOnOtherDevices() throws IOException {
+        Path shared = root.resolve("shared");
+        PracticeEngine laptop = new PracticeEngine(WORD_LIST, Files.createDirectories(root.resolve("laptop")),
+            new Random(1));
+        laptop.setSyncDirectory(shared);
+        laptop.load();
+        laptop.startNewSession();
+        String missed = laptop.getCurrentWord();
+        laptop.markWrong();
+        laptop.close();
+
+        PracticeEngine tablet = new PracticeEngine(WORD_LIST, Files.createDirectories(root.resolve("tablet")),
+            new Random(2));
+        tablet.setSyncDirectory(shared);
+        tablet.load();
+        assertEquals(1, tablet.getMistakeCount(missed));
+        tablet.close();
+    }
+}
@@ -0,0 +1,78 @@
+package spellingpractice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+class RankingIndexTest {
+    private static WordDictionary words(int count) {
+        WordDictionary.Builder builder = new WordDictionary.Builder();
+        for (int i = 0; i < count; i++) {
+            builder.add("w" + Integer.toString(i * 7919 % count, 36));
+        }
+        return builder.build();
+    }
+
+    // Most mistakes first, then alphabetical
+    private static List<Integer> expectedOrder(WordDictionary dictionary, int[] counts) {
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 0; id < dictionary.size(); id++) {
+            ids.add(id);
+        }
+        ids.sort(Comparator.<Integer>comparingInt(id -> -counts[id]).thenComparing(dictionary::word));
+        return ids;
+    }
+
+    private static List<Integer> rankedOrder(RankingIndex ranking) {
+        List<Integer> ids = new ArrayList<>();
+        for (int rank = 0; rank < ranking.size(); rank++) {
+            ids.add(ranking.wordAtRank(rank));
+        }
+        return ids;
+    }
+
+    @Test
+    void ranksByCountThenAlphabetically() {
+        WordDictionary dictionary = words(500);
+        Random random = new Random(7);
+        int[] counts = new int[dictionary.size()];
+        for (int id = 0; id < counts.length; id++) {
+            counts[id] = random.nextInt(5);
+        }
+
+        RankingIndex ranking = new RankingIndex(dictionary, counts);
+        assertEquals(expectedOrder(dictionary, counts), rankedOrder(ranking));
+    }
+
+    @Test
+    void staysOrderedAsCountsChange() {
+        WordDictionary dictionary = words(300);
+        int[] counts = new int[dictionary.size()];
+        RankingIndex ranking = new RankingIndex(dictionary, counts);
+        Random random = new Random(11);
+        for (int i = 0; i < 2000; i++) {
+            int id = random.nextInt(counts.length);
+            ranking.remove(id);
+            counts[id] += random.nextInt(3);
+            ranking.insert(id);
+        }
+
+        assertEquals(counts.length, ranking.size());
+        assertEquals(expectedOrder(dictionary, counts), rankedOrder(ranking));
+    }
+
+    @Test
+    void findsAlphabeticalPrefixRanges() {
+        WordDictionary dictionary = WordDictionary.of(List.of("bat", "apple", "ball", "cat", "bake"));
+        RankingIndex ranking = new RankingIndex(dictionary, new int[dictionary.size()]);
+        long range = ranking.prefixRange("ba");
+        int from = (int) (range >>> 32);
+        int to = (int) range;
+        List<String> matches = new ArrayList<>();
+        for (int position = from; position < to; position++) {
+            matches.add(ranking.word(ranking.wordAtAlphabetical(position)));
+        }
+        assertEquals(List.of("bake", "ball", "bat"), matches);
+    }
+}
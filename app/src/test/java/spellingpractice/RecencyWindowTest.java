@@ -0,0 +1,71 @@
+package spellingpractice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.BitSet;
+import org.junit.jupiter.api.Test;
+
+class RecencyWindowTest {
+    private static BitSet bits(int... ids) {
+        BitSet bits = new BitSet();
+        for (int id : ids) {
+            bits.set(id);
+        }
+        return bits;
+    }
+
+    @Test
+    void keepsTheUnionOfTheLastSessions() {
+        RecencyWindow window = new RecencyWindow(10, 2);
+        window.add(new int[] {0, 1, 2});
+        window.add(new int[] {2, 3});
+        assertEquals(bits(0, 1, 2, 3), window.union());
+
+        // The first session leaves, but 2 is still used by the second
+        window.add(new int[] {4});
+        assertEquals(bits(2, 3, 4), window.union());
+        assertEquals(2, window.size());
+
+        window.add(new int[] {5});
+        assertEquals(bits(4, 5), window.union());
+    }
+
+    @Test
+    void projectsTheUnionWithoutChangingTheWindow() {
+        RecencyWindow window = new RecencyWindow(10, 2);
+        window.add(new int[] {0, 1});
+        window.add(new int[] {2});
+        int version = window.version();
+
+        assertEquals(bits(2, 7), window.unionAfter(new int[] {7}));
+        assertEquals(bits(0, 1, 2), window.union());
+        assertEquals(version, window.version());
+
+        window.add(new int[] {7});
+        assertEquals(window.unionAfter(new int[] {8}), bits(7, 8));
+        assertNotEquals(version, window.version());
+    }
+
+    @Test
+    void listsSessionsOldestFirstAndClears() {
+        RecencyWindow window = new RecencyWindow(10, 3);
+        for (int i = 0; i < 5; i++) {
+            window.add(new int[] {i});
+        }
+        assertEquals(3, window.sessions().size());
+        assertArrayEquals(new int[] {2}, window.sessions().get(0));
+        assertArrayEquals(new int[] {4}, window.sessions().get(2));
+
+        window.clear();
+        assertEquals(0, window.size());
+        assertTrue(window.union().isEmpty());
+    }
+
+    @Test
+    void aWindowOfDepthZeroRemembersNothing() {
+        RecencyWindow window = new RecencyWindow(10, 0);
+        window.add(new int[] {1, 2});
+        assertTrue(window.union().isEmpty());
+        assertTrue(window.unionAfter(new int[] {3}).isEmpty());
+    }
+}
@@ -0,0 +1,150 @@
+package spellingpractice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SpacedRepetitionSchedulerTest {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final long START = 1_700_000_000_000L;
+    private static final WordDictionary WORDS = WordDictionary.of(
+        List.of("ant", "bee", "cow", "dog", "eel", "fox", "gnu", "hen", "ibis", "jay"));
+
+    @TempDir
+    Path directory;
+
+    private static int[] next(SpacedRepetitionScheduler scheduler, int count, long now) {
+        return scheduler.nextSession(count, now, new int[0], new BitSet());
+    }
+
+    @Test
+    void introducesNewWordsInDictionaryOrderWhileNothingIsDue() {
+        SpacedRepetitionScheduler scheduler = new SpacedRepetitionScheduler(WORDS);
+        int[] first = next(scheduler, 3, START);
+        assertArrayEquals(new int[] {0, 1, 2}, first);
+        for (int id : first) {
+            scheduler.recordAnswer(id, true, START);
+        }
+
+        assertArrayEquals(new int[] {3, 4, 5}, next(scheduler, 3, START + 1000));
+    }
+
+    @Test
+    void dueWordsComeFirstMostOverdueFirst() {
+        SpacedRepetitionScheduler scheduler = new SpacedRepetitionScheduler(WORDS);
+        scheduler.recordAnswer(4, false, START + 1000);
+        scheduler.recordAnswer(2, false, START);
+        scheduler.recordAnswer(7, true, START);
+        scheduler.recordAnswer(7, true, START + DAY);
+
+        int[] session = next(scheduler, 3, START + 2 * DAY);
+        // 7 is not due for six more days, so a new word fills the last place
+        assertArrayEquals(new int[] {2, 4, 0}, session);
+    }
+
+    @Test
+    void correctAnswersStretchTheIntervalAndAMistakeResetsIt() {
+        SpacedRepetitionScheduler scheduler = new SpacedRepetitionScheduler(WORDS);
+        long now = START;
+        int[] expected = {1, 6, 15, 38};
+        for (int days : expected) {
+            scheduler.recordAnswer(0, true, now);
+            assertEquals(days, scheduler.intervalDays(0));
+            assertEquals(now + days * DAY, scheduler.dueTime(0));
+            now = scheduler.dueTime(0);
+        }
+
+        scheduler.recordAnswer(0, false, now);
+        assertEquals(1, scheduler.intervalDays(0));
+        assertEquals(now + DAY, scheduler.dueTime(0));
+    }
+
+    @Test
+    void fillsUpWithWordsDueSoonestOnceNewWordsRunOut() {
+        SpacedRepetitionScheduler scheduler = new SpacedRepetitionScheduler(WORDS);
+        for (int id = 0; id < WORDS.size(); id++) {
+            scheduler.recordAnswer(id, true, START + id * 1000);
+        }
+        scheduler.recordAnswer(3, true, START + DAY);
+
+        int[] session = next(scheduler, 4, START);
+        assertArrayEquals(new int[] {0, 1, 2, 4}, session);
+    }
+
+    @Test
+    void preferredNewWordsComeAfterTheDueOnes() {
+        SpacedRepetitionScheduler scheduler = new SpacedRepetitionScheduler(WORDS);
+        scheduler.recordAnswer(5, false, START);
+        scheduler.recordAnswer(8, true, START + 1000);
+
+        // 8 has been practiced, so it is not new and waits until it is due
+        int[] session = scheduler.nextSession(5, START + DAY, new int[] {9, 8, 6}, new BitSet());
+        assertArrayEquals(new int[] {5, 9, 6, 0, 1}, session);
+    }
+
+    @Test
+    void recentlyUsedWordsWaitUntilNothingElseIsLeft() {
+        SpacedRepetitionScheduler scheduler = new SpacedRepetitionScheduler(WORDS);
+        for (int id = 0; id < WORDS.size(); id++) {
+            scheduler.recordAnswer(id, false, START + id * 1000);
+        }
+        BitSet recent = new BitSet();
+        recent.set(0);
+        recent.set(2);
+
+        assertArrayEquals(new int[] {1, 3, 4}, scheduler.nextSession(3, START + 2 * DAY, new int[0], recent));
+        // Only recent words are left to fill the last two places
+        int[] session = scheduler.nextSession(10, START + 2 * DAY, new int[0], recent);
+        assertArrayEquals(new int[] {1, 3, 4, 5, 6, 7, 8, 9, 0, 2}, session);
+    }
+
+    @Test
+    void wordsMissedBeforeSchedulingComeFirstMostMistakesFirst() {
+        SpacedRepetitionScheduler scheduler = new SpacedRepetitionScheduler(WORDS);
+        scheduler.recordAnswer(0, true, START);
+        int[] mistakes = new int[WORDS.size()];
+        mistakes[0] = 4;
+        mistakes[3] = 1;
+        mistakes[6] = 2;
+        scheduler.seedMistakes(mistakes, START);
+
+        // Word 0 is already scheduled and keeps its place
+        assertArrayEquals(new int[] {6, 3, 1, 2}, next(scheduler, 4, START + 1000));
+    }
+
+    @Test
+    void aRewindOffersTheSameNewWordsAgain() {
+        SpacedRepetitionScheduler scheduler = new SpacedRepetitionScheduler(WORDS);
+        int position = scheduler.newWordPosition();
+        int[] thrownAway = next(scheduler, 3, START);
+        scheduler.rewindNewWords(position);
+
+        assertArrayEquals(thrownAway, next(scheduler, 3, START));
+    }
+
+    @Test
+    void savedScheduleLoadsBack() throws IOException {
+        SpacedRepetitionScheduler scheduler = new SpacedRepetitionScheduler(WORDS);
+        for (int id : next(scheduler, 3, START)) {
+            scheduler.recordAnswer(id, id != 1, START);
+        }
+        scheduler.recordAnswer(0, true, START + DAY);
+        Path file = directory.resolve(SpacedRepetitionScheduler.SCHEDULE_FILE);
+        BinaryFormat.writeFile(file, scheduler.encode());
+
+        SpacedRepetitionScheduler loaded = new SpacedRepetitionScheduler(WORDS);
+        loaded.load(file);
+        for (int id = 0; id < 3; id++) {
+            assertEquals(scheduler.intervalDays(id), loaded.intervalDays(id));
+            assertEquals(scheduler.dueTime(id), loaded.dueTime(id));
+        }
+        // Word 1 was missed and 2 was right, so both are due after a day;
+        // the rest of the list is still new
+        assertArrayEquals(new int[] {1, 2, 3}, next(loaded, 3, START + 2 * DAY));
+    }
+}
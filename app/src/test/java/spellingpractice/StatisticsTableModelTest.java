@@ -0,0 +1,54 @@
+package spellingpractice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+class StatisticsTableModelTest {
+    private static final WordDictionary WORDS = WordDictionary.of(
+        List.of("bat", "ant", "bee", "cat", "bird"));
+    private static final int[] COUNTS = {1, 4, 0, 2, 3};
+
+    private static List<Object> column(StatisticsTableModel model, int column) {
+        List<Object> values = new ArrayList<>();
+        for (int row = 0; row < model.getRowCount(); row++) {
+            values.add(model.getValueAt(row, column));
+        }
+        return values;
+    }
+
+    private static StatisticsTableModel model() {
+        return new StatisticsTableModel(new RankingIndex(WORDS, COUNTS.clone()));
+    }
+
+    @Test
+    void sortsByEitherColumnBothWays() {
+        StatisticsTableModel model = model();
+        assertEquals(List.of("ant", "bird", "cat", "bat", "bee"), column(model, 0));
+
+        model.sortBy(StatisticsTableModel.WORD_COLUMN);
+        assertEquals(List.of("ant", "bat", "bee", "bird", "cat"), column(model, 0));
+        model.sortBy(StatisticsTableModel.WORD_COLUMN);
+        assertEquals(List.of("cat", "bird", "bee", "bat", "ant"), column(model, 0));
+
+        model.sortBy(StatisticsTableModel.COUNT_COLUMN);
+        assertEquals(List.of(4, 3, 2, 1, 0), column(model, 1));
+        model.sortBy(StatisticsTableModel.COUNT_COLUMN);
+        assertEquals(List.of(0, 1, 2, 3, 4), column(model, 1));
+    }
+
+    @Test
+    void sortsTheWordsMatchingAPrefix() {
+        StatisticsTableModel model = model();
+        model.setPrefix("b");
+        assertEquals(List.of("bat", "bee", "bird"), column(model, 0));
+
+        model.sortBy(StatisticsTableModel.COUNT_COLUMN);
+        assertEquals(List.of("bird", "bat", "bee"), column(model, 0));
+        model.setLimit(2);
+        assertEquals(List.of("bird", "bat"), column(model, 0));
+        model.sortBy(StatisticsTableModel.COUNT_COLUMN);
+        assertEquals(List.of("bee", "bat"), column(model, 0));
+    }
+}
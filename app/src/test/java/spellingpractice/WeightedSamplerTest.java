@@ -0,0 +1,45 @@
+package spellingpractice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+class WeightedSamplerTest {
+    @Test
+    void firstDrawFollowsTheWeights() {
+        long[] weights = {1, 2, 3, 4, 0, 10};
+        long total = Arrays.stream(weights).sum();
+        int draws = 200_000;
+        int[] hits = new int[weights.length];
+        Random random = new Random(42);
+        for (int i = 0; i < draws; i++) {
+            hits[new WeightedSampler(weights).next(random)]++;
+        }
+
+        for (int i = 0; i < weights.length; i++) {
+            double expected = (double) weights[i] / total;
+            assertEquals(expected, (double) hits[i] / draws, 0.005, "index " + i);
+        }
+    }
+
+    @Test
+    void drawsEveryPositiveWeightOnceWithoutReplacement() {
+        long[] weights = {5, 0, 1, 7, 0, 3, 1};
+        WeightedSampler sampler = new WeightedSampler(weights);
+        Set<Integer> drawn = new HashSet<>();
+        for (int i = 0; i < 5; i++) {
+            assertFalse(sampler.isEmpty());
+            int index = sampler.next(new Random(i));
+            assertTrue(weights[index] > 0, "zero weight drawn at " + index);
+            assertTrue(drawn.add(index), "drawn twice: " + index);
+        }
+        assertTrue(sampler.isEmpty());
+        assertEquals(-1, sampler.next(new Random()));
+    }
+
+    @Test
+    void rejectsNegativeWeights() {
+        assertThrows(IllegalArgumentException.class, () -> new WeightedSampler(new long[] {1, -1}));
+    }
+}
@@ -0,0 +1,41 @@
+package spellingpractice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+class WordDictionaryTest {
+    @Test
+    void givesIdsInFirstOccurrenceOrder() {
+        WordDictionary dictionary = WordDictionary.of(List.of("cat", "dog", "cat", "bird"));
+
+        assertEquals(3, dictionary.size());
+        assertEquals(List.of("cat", "dog", "bird"), dictionary.words());
+        assertEquals(0, dictionary.idOf("cat"));
+        assertEquals(2, dictionary.idOf("bird"));
+        assertEquals("dog", dictionary.word(1));
+        assertEquals(-1, dictionary.idOf("fish"));
+    }
+
+    @Test
+    void findsEveryWordOfALargeList() {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            words.add("w" + i);
+        }
+        // "Aa" and "BB" share a hash code, so these all collide in pairs
+        for (int i = 0; i < 100; i++) {
+            words.add("Aa" + i);
+            words.add("BB" + i);
+        }
+        WordDictionary dictionary = WordDictionary.of(words);
+
+        assertEquals(words.size(), dictionary.size());
+        for (int id = 0; id < words.size(); id++) {
+            assertEquals(id, dictionary.idOf(words.get(id)));
+            assertEquals(words.get(id), dictionary.word(id));
+        }
+        assertEquals(-1, dictionary.idOf("w20000"));
+    }
+}
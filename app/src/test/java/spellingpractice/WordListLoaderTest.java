@@ -0,0 +1,51 @@
+package spellingpractice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class WordListLoaderTest {
+    private static final String LISTS = String.join("\n",
+        "\uFEFF# spelling lists",
+        "  cat  ",
+        "",
+        "[animals]",
+        "dog",
+        "cat",
+        "[animals:2]",
+        "giraffe",
+        "[animals:3]",
+        "hippopotamus",
+        "[phrases]",
+        "ice   cream",
+        "don\u2019t");
+
+    private static WordDictionary load(String listName, int maxLevel) throws IOException {
+        return WordListLoader.load(new ByteArrayInputStream(LISTS.getBytes(StandardCharsets.UTF_8)),
+            listName, maxLevel);
+    }
+
+    @Test
+    void readsEveryListOnceWithoutAFilter() throws IOException {
+        assertEquals(List.of("cat", "dog", "giraffe", "hippopotamus", "ice cream", "don't"),
+            load(null, Integer.MAX_VALUE).words());
+    }
+
+    @Test
+    void keepsOneListUpToALevel() throws IOException {
+        assertEquals(List.of("dog", "cat", "giraffe"), load("animals", 2).words());
+        assertEquals(List.of("cat"), load(WordListLoader.DEFAULT_LIST, 1).words());
+    }
+
+    @Test
+    void normalizesWhitespaceApostrophesAndComposition() {
+        assertEquals("ice cream", WordListLoader.normalize(" ice \t cream "));
+        assertEquals("don't", WordListLoader.normalize("don\u2018t"));
+        assertEquals("caf\u00e9", WordListLoader.normalize("cafe\u0301"));
+        assertEquals("word", WordListLoader.normalize("\uFEFFword"));
+        assertEquals("", WordListLoader.normalize("   "));
+    }
+}
@@ -0,0 +1,68 @@
+package spellingpractice;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Synthetic vocabularies and data directories shared by the benchmarks.
+ */
+final class BenchmarkData {
+    private static final long SEED = 42;
+
+    private BenchmarkData() {
+    }
+
+    static List<String> vocabulary(int size) {
+        List<String> words = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            words.add("w" + Integer.toString(i, 36));
+        }
+        return words;
+    }
+
+    /**
+     * Creates a data directory in the text format (migrated to binary on
+     * first load) whose progress file gives roughly
+     * mistakeDensity of the words between one and five mistakes, plus a
+     * history of the given number of sessions.
+     */
+    static Path dataDirectory(List<String> words, double mistakeDensity) throws IOException {
+        return dataDirectory(words, mistakeDensity, PracticeEngine.SESSIONS_TO_AVOID);
+    }
+
+    static Path dataDirectory(List<String> words, double mistakeDensity, int sessions) throws IOException {
+        Path directory = Files.createTempDirectory("spelling-bench");
+        Random random = new Random(SEED);
+
+        try (BufferedWriter writer = Files.newBufferedWriter(
+                directory.resolve(ProgressStore.LEGACY_SNAPSHOT_FILE), StandardCharsets.UTF_8)) {
+            for (String word : words) {
+                if (random.nextDouble() < mistakeDensity) {
+                    writer.write(word + ":" + (1 + random.nextInt(5)));
+                    writer.newLine();
+                }
+            }
+        }
+
+        List<String> history = new ArrayList<>();
+        for (int s = 0; s < sessions; s++) {
+            List<String> session = new ArrayList<>();
+            for (int i = 0; i < PracticeEngine.WORDS_PER_SESSION; i++) {
+                session.add(words.get(random.nextInt(words.size())));
+            }
+            history.add(String.join(",", session));
+        }
+        Files.write(directory.resolve(SessionHistoryStore.LEGACY_HISTORY_FILE), history, StandardCharsets.UTF_8);
+
+        return directory;
+    }
+
+    static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package spellingpractice;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives a LearnerServer with many concurrent synthetic learners and reports
+ * sessions/sec and answer latency percentiles.
+ *
+ * Usage: LoadTest [learners] [sessions per learner] [error rate] [base url]
+ * Without a base url an embedded server is started on a free port.
+ */
+public class LoadTest {
+    public static void main(String[] args) throws Exception {
+        int learnerCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int sessionsPerLearner = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        double errorRate = args.length > 2 ? Double.parseDouble(args[2]) : 0.2;
+
+        LearnerServer embedded = null;
+        Path dataDirectory = null;
+        String baseUrl;
+        if (args.length > 3) {
+            baseUrl = args[3];
+        } else {
+            dataDirectory = Files.createTempDirectory("spelling-load");
+            embedded = new LearnerServer(dataDirectory, WordListLoader.loadDefault());
+            baseUrl = "http://localhost:" + embedded.start(0);
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newFixedThreadPool(16))
+            .build();
+        int totalAnswers = learnerCount * sessionsPerLearner * PracticeEngine.WORDS_PER_SESSION;
+        long[] latencies = new long[totalAnswers];
+        LongAdder answerSlots = new LongAdder();
+        LongAdder sessions = new LongAdder();
+
+        ExecutorService learners = Executors.newFixedThreadPool(Math.min(learnerCount, 256));
+        List<Future<?>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int l = 0; l < learnerCount; l++) {
+            String learner = "learner" + l;
+            Random random = new Random(l);
+            results.add(learners.submit(() -> {
+                for (int s = 0; s < sessionsPerLearner; s++) {
+                    String body = send(client, baseUrl + "/session?learner=" + learner);
+                    while (!body.startsWith("complete=true")) {
+                        boolean correct = random.nextDouble() >= errorRate;
+                        long begin = System.nanoTime();
+                        body = send(client, baseUrl + "/answer?learner=" + learner + "&correct=" + correct);
+                        long elapsed = System.nanoTime() - begin;
+                        synchronized (latencies) {
+                            int slot = answerSlots.intValue();
+                            if (slot < latencies.length) {
+                                latencies[slot] = elapsed;
+                            }
+                            answerSlots.increment();
+                        }
+                    }
+                    sessions.increment();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        learners.shutdown();
+
+        int recorded = Math.min(answerSlots.intValue(), latencies.length);
+        long[] sorted = Arrays.copyOf(latencies, recorded);
+        Arrays.sort(sorted);
+
+        System.out.printf("Learners:       %d%n", learnerCount);
+        System.out.printf("Sessions:       %d in %.2f s (%.1f sessions/sec)%n",
+            sessions.sum(), seconds, sessions.sum() / seconds);
+        System.out.printf("Answers:        %d (%.1f answers/sec)%n", recorded, recorded / seconds);
+        System.out.printf("Answer latency: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+            percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 1.0));
+
+        if (embedded != null) {
+            embedded.stop();
+            BenchmarkData.delete(dataDirectory);
+        }
+        System.exit(0);
+    }
+
+    private static String send(HttpClient client, String url) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+            .POST(HttpRequest.BodyPublishers.noBody())
+            .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("HTTP " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+}
@@ -0,0 +1,66 @@
+package spellingpractice;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Progress load/save and history load over synthetic data directories.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class PersistenceBenchmark {
+    @Param({"400", "100000", "1000000", "10000000"})
+    public int vocabularySize;
+
+    @Param({"0", "0.1", "0.5"})
+    public double mistakeDensity;
+
+    private Path directory;
+    private List<String> words;
+    private PracticeEngine engine;
+    private ProgressStore store;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        words = BenchmarkData.vocabulary(vocabularySize);
+        directory = BenchmarkData.dataDirectory(words, mistakeDensity);
+        engine = new PracticeEngine(words, directory, new Random(42));
+        engine.load();
+        store = new ProgressStore(Files.createDirectories(directory.resolve("store")), WordDictionary.of(words));
+        store.load();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        engine.close();
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public PracticeEngine loadProgress() {
+        engine.loadProgress();
+        return engine;
+    }
+
+    @Benchmark
+    public void recordMistakeAndSync() throws IOException {
+        store.recordMistake(next++ % words.size());
+        store.sync();
+    }
+
+    @Benchmark
+    public PracticeEngine loadSessionHistory() {
+        engine.loadSessionHistory();
+        return engine;
+    }
+}
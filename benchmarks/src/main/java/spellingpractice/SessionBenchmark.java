@@ -0,0 +1,60 @@
+package spellingpractice;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session building and weighted selection over synthetic vocabularies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class SessionBenchmark {
+    @Param({"400", "100000", "1000000", "10000000"})
+    public int vocabularySize;
+
+    @Param({"0", "0.1", "0.5"})
+    public double mistakeDensity;
+
+    @Param({"2", "200"})
+    public int sessionsToAvoid;
+
+    private Path directory;
+    private List<String> words;
+    private PracticeEngine engine;
+    private int[] allIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        words = BenchmarkData.vocabulary(vocabularySize);
+        directory = BenchmarkData.dataDirectory(words, mistakeDensity, sessionsToAvoid);
+        engine = new PracticeEngine(words, directory, new Random(42));
+        engine.setSessionsToAvoid(sessionsToAvoid);
+        engine.load();
+        allIds = new int[words.size()];
+        Arrays.setAll(allIds, i -> i);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        engine.close();
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public int[] buildSession() {
+        return engine.buildSession();
+    }
+
+    @Benchmark
+    public int[] selectWeightedWords() {
+        return engine.selectWeightedWords(allIds, allIds.length, PracticeEngine.WORDS_PER_SESSION);
+    }
+}